@@ -18,17 +18,26 @@
 package main
 
 import (
+	"bufio"
+	"crypto/sha1"
+	"encoding/hex"
 	"flag"
 	"fmt"
 	"github.com/getgauge/common"
+	"io"
+	"io/ioutil"
+	"net"
 	"os"
 	"os/exec"
 	"os/signal"
 	"path"
 	"path/filepath"
 	"runtime"
+	"sort"
+	"strconv"
 	"strings"
 	"syscall"
+	"time"
 )
 
 const (
@@ -39,6 +48,11 @@ const (
 	custom_compile_dir        = "gauge_custom_compile_dir"
 	custom_classpath          = "gauge_custom_classpath"
 	jvm_args_env_name         = "gauge_jvm_args"
+	java_daemon_env_name      = "gauge_java_daemon"
+	internal_port_env_name    = "GAUGE_INTERNAL_PORT"
+	api_port_env_name         = "GAUGE_API_PORT"
+	daemon_flag               = "--daemon"
+	daemon_start_timeout      = 30 * time.Second
 	default_build_dir         = "gauge_bin"
 	main_class_name           = "com.thoughtworks.gauge.GaugeRuntime"
 	step_implementation_class = "StepImplementation.java"
@@ -83,6 +97,9 @@ func startJava() {
 	}
 
 	javaPath := getExecPathFrom(java_home, alternate_java_home, execName(java))
+	if os.Getenv(java_daemon_env_name) == "true" && os.Getenv(common.GaugeDebugOptsEnv) == "" && runWithDaemon(javaPath, cp) {
+		return
+	}
 	args := createCommandArgs(cp)
 	cmd := runCommandAsync(javaPath, args)
 	listenForKillSignal(cmd)
@@ -103,6 +120,163 @@ func listenForKillSignal(cmd *exec.Cmd) {
 	}()
 }
 
+// Serves this run from a runner JVM kept alive across gauge runs, starting one if needed.
+// Daemons are keyed by the classpath, its jars and the environment, so a change to any of them starts a new one.
+// Returns false if the run has to be served by a new JVM instead.
+func runWithDaemon(javaPath string, cp string) bool {
+	dir := filepath.Join(projectRoot, ".gauge", "java-daemon")
+	if err := os.MkdirAll(dir, 0700); err != nil {
+		return false
+	}
+	key := daemonKey(cp)
+	stopOtherDaemons(dir, key)
+	stateFile := filepath.Join(dir, key+".port")
+	conn, token, err := connectToDaemon(stateFile)
+	if err != nil {
+		os.Remove(stateFile)
+		if err = startDaemon(javaPath, cp, stateFile, filepath.Join(dir, key+".log")); err != nil {
+			fmt.Printf("Failed to start the runner daemon, starting a new runner instead. %s\n", err.Error())
+			return false
+		}
+		if conn, token, err = connectToDaemon(stateFile); err != nil {
+			return false
+		}
+	}
+	defer conn.Close()
+	fmt.Fprintf(conn, "%s run %s %s\n", token, os.Getenv(internal_port_env_name), os.Getenv(api_port_env_name))
+	reader := bufio.NewReader(conn)
+	if reply, err := reader.ReadString('\n'); err != nil || strings.TrimSpace(reply) != "started" {
+		return false
+	}
+	// Dropping the connection ends the run in the daemon, like killing the runner would
+	sigc := make(chan os.Signal, 2)
+	signal.Notify(sigc, syscall.SIGTERM)
+	go func() {
+		<-sigc
+		conn.Close()
+	}()
+	copyRunOutput(reader)
+	return true
+}
+
+// Until the run is done, the daemon sends what it prints as "out <length>" or "err <length>" followed by the output,
+// which goes to this process's stdout and stderr so gauge shows it like the output of a runner started for the run.
+func copyRunOutput(reader *bufio.Reader) {
+	for {
+		line, err := reader.ReadString('\n')
+		if err != nil {
+			return
+		}
+		fields := strings.Fields(line)
+		if len(fields) != 2 {
+			return
+		}
+		length, err := strconv.ParseInt(fields[1], 10, 64)
+		if err != nil {
+			return
+		}
+		output := os.Stdout
+		if fields[0] == "err" {
+			output = os.Stderr
+		}
+		if _, err = io.CopyN(output, reader, length); err != nil {
+			return
+		}
+	}
+}
+
+func daemonKey(cp string) string {
+	hash := sha1.New()
+	fmt.Fprintln(hash, projectRoot)
+	fmt.Fprintln(hash, cp)
+	// Class directories are left out, the daemon reloads changed classes itself
+	for _, entry := range filepath.SplitList(cp) {
+		files := []string{entry}
+		if filepath.Base(entry) == "*" {
+			files, _ = filepath.Glob(filepath.Join(filepath.Dir(entry), "*.jar"))
+		}
+		for _, file := range files {
+			if info, err := os.Stat(file); err == nil && !info.IsDir() {
+				fmt.Fprintln(hash, file, info.Size(), info.ModTime().UnixNano())
+			}
+		}
+	}
+	env := make([]string, 0)
+	for _, variable := range os.Environ() {
+		if !strings.HasPrefix(variable, internal_port_env_name+"=") && !strings.HasPrefix(variable, api_port_env_name+"=") {
+			env = append(env, variable)
+		}
+	}
+	sort.Strings(env)
+	for _, variable := range env {
+		fmt.Fprintln(hash, variable)
+	}
+	return hex.EncodeToString(hash.Sum(nil))[:16]
+}
+
+// The state file holds the daemon's port and the token every request has to start with
+func connectToDaemon(stateFile string) (net.Conn, string, error) {
+	state, err := ioutil.ReadFile(stateFile)
+	if err != nil {
+		return nil, "", err
+	}
+	fields := strings.Fields(string(state))
+	if len(fields) != 2 {
+		return nil, "", fmt.Errorf("malformed runner daemon state in %s", stateFile)
+	}
+	conn, err := net.DialTimeout("tcp", "127.0.0.1:"+fields[0], time.Second)
+	return conn, fields[1], err
+}
+
+func stopOtherDaemons(dir string, key string) {
+	stateFiles, _ := filepath.Glob(filepath.Join(dir, "*.port"))
+	for _, stateFile := range stateFiles {
+		if filepath.Base(stateFile) == key+".port" {
+			continue
+		}
+		// A daemon finishes the run it is serving before it stops and removes its state file
+		if conn, token, err := connectToDaemon(stateFile); err == nil {
+			fmt.Fprintln(conn, token, "stop")
+			conn.Close()
+		} else {
+			os.Remove(stateFile)
+		}
+	}
+}
+
+func startDaemon(javaPath string, cp string, stateFile string, logFile string) error {
+	log, err := os.OpenFile(logFile, os.O_CREATE|os.O_WRONLY|os.O_APPEND, 0600)
+	if err != nil {
+		return err
+	}
+	// Step output can contain secrets, so only the owner may read the log
+	os.Chmod(logFile, 0600)
+	defer log.Close()
+	cmd := exec.Command(javaPath, append(createCommandArgs(cp), daemon_flag, stateFile)...)
+	cmd.Stdout = log
+	cmd.Stderr = log
+	if err = cmd.Start(); err != nil {
+		return err
+	}
+	exited := make(chan error, 1)
+	go func() {
+		exited <- cmd.Wait()
+	}()
+	deadline := time.Now().Add(daemon_start_timeout)
+	for time.Now().Before(deadline) {
+		if common.FileExists(stateFile) {
+			return nil
+		}
+		select {
+		case <-exited:
+			return fmt.Errorf("runner daemon exited, see %s", logFile)
+		case <-time.After(100 * time.Millisecond):
+		}
+	}
+	cmd.Process.Kill()
+	return fmt.Errorf("runner daemon did not start within %s", daemon_start_timeout)
+}
+
 func createCommandArgs(cp string) []string {
 	args := []string{}
 	javaDebugPort := os.Getenv(common.GaugeDebugOptsEnv)
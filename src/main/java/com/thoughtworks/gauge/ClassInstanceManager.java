@@ -17,34 +17,114 @@
 
 package com.thoughtworks.gauge;
 
-import java.util.HashMap;
+import java.io.Closeable;
+import java.lang.reflect.Constructor;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Manages class instance creation, lifetime and caching
+ * Manages class instance creation, lifetime and caching. Each class gets one instance until the cache is cleared,
+ * also when several threads ask for it at once. Cleared instances that implement {@link Closeable} are closed.
  */
 public class ClassInstanceManager {
-    private static Map<Class<?>, Object> classInstanceMap = new HashMap<Class<?>, Object>();
-    private static ClassInitializer initializer;
+    private static final ConcurrentMap<Class<?>, Instance> classInstanceMap = new ConcurrentHashMap<Class<?>, Instance>();
+    private static final ConcurrentMap<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+    private static volatile ClassInitializer initializer;
 
     public static Object get(Class<?> declaringClass) throws Exception {
-        Object classInstance = classInstanceMap.get(declaringClass);
-        if (classInstance == null) {
-            if (initializer != null) {
-                classInstance = initializer.initialize(declaringClass);
-            } else
-                classInstance = Class.forName(declaringClass.getName()).newInstance();
-            classInstanceMap.put(declaringClass, classInstance);
-        }
-        return classInstance;
+        Instance instance = classInstanceMap.get(declaringClass);
+        if (instance == null) {
+            Instance created = new Instance(declaringClass);
+            instance = classInstanceMap.putIfAbsent(declaringClass, created);
+            if (instance == null) {
+                instance = created;
+            }
+        }
+        try {
+            return instance.get();
+        } catch (Exception e) {
+            classInstanceMap.remove(declaringClass, instance);
+            throw e;
+        }
     }
 
     public static void setClassInitializer(ClassInitializer initializer) {
         ClassInstanceManager.initializer = initializer;
     }
 
-    public static void clearCache(){
-        classInstanceMap.clear();
+    public static void clearCache() {
+        for (Map.Entry<Class<?>, Instance> entry : classInstanceMap.entrySet()) {
+            if (classInstanceMap.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().close();
+            }
+        }
     }
-}
 
+    /**
+     * Drops the instances of the given classes, e.g. after they were reloaded.
+     */
+    public static void evict(Set<String> classNames) {
+        for (Map.Entry<Class<?>, Instance> entry : classInstanceMap.entrySet()) {
+            if (classNames.contains(entry.getKey().getName()) && classInstanceMap.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().close();
+            }
+        }
+        for (Class<?> instanceClass : constructors.keySet()) {
+            if (classNames.contains(instanceClass.getName())) {
+                constructors.remove(instanceClass);
+            }
+        }
+    }
+
+    private static Object create(Class<?> instanceClass) throws Exception {
+        ClassInitializer classInitializer = initializer;
+        if (classInitializer != null) {
+            return classInitializer.initialize(instanceClass);
+        }
+        Constructor<?> constructor = constructors.get(instanceClass);
+        if (constructor == null) {
+            constructor = instanceClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            constructors.put(instanceClass, constructor);
+        }
+        return constructor.newInstance();
+    }
+
+    /**
+     * Creates the instance on first use, so that a class is never instantiated twice for the same cache entry.
+     */
+    private static class Instance {
+        private final Class<?> instanceClass;
+        private volatile Object value;
+
+        Instance(Class<?> instanceClass) {
+            this.instanceClass = instanceClass;
+        }
+
+        Object get() throws Exception {
+            Object result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = create(instanceClass);
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        synchronized void close() {
+            if (value instanceof Closeable) {
+                try {
+                    ((Closeable) value).close();
+                } catch (Exception e) {
+                    System.out.println("Failed to close instance of " + instanceClass.getName() + ": " + e);
+                }
+            }
+        }
+    }
+}
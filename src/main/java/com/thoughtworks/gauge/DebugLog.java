@@ -0,0 +1,79 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Diagnostics about the runner itself, e.g. how long connecting or executing took. Gauge shows whatever the runner
+ * prints to the user, so these go to the file named by {@link GaugeConstant#GAUGE_JAVA_DEBUG_LOG} and nowhere otherwise.
+ */
+public class DebugLog {
+    private static final DebugLog instance = fromEnvironment();
+
+    private final File file;
+    private PrintWriter writer;
+
+    DebugLog(File file) {
+        this.file = file;
+    }
+
+    private static DebugLog fromEnvironment() {
+        String path = System.getenv(GaugeConstant.GAUGE_JAVA_DEBUG_LOG);
+        if (path == null || path.trim().equals("")) {
+            return new DebugLog(null);
+        }
+        File file = new File(path.trim());
+        String projectRoot = System.getenv(GaugeConstant.GAUGE_PROJECT_ROOT);
+        if (!file.isAbsolute() && projectRoot != null) {
+            file = new File(projectRoot, path.trim());
+        }
+        return new DebugLog(file);
+    }
+
+    public static boolean isEnabled() {
+        return instance.enabled();
+    }
+
+    public static void log(String format, Object... args) {
+        instance.write(String.format(format, args));
+    }
+
+    boolean enabled() {
+        return file != null;
+    }
+
+    synchronized void write(String message) {
+        if (file == null) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = new PrintWriter(new FileWriter(file, true), true);
+            }
+            writer.println(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + " " + message);
+        } catch (IOException e) {
+            // Diagnostics must never fail a run
+        }
+    }
+}
@@ -17,48 +17,66 @@
 
 package com.thoughtworks.gauge;
 
-import com.google.protobuf.CodedInputStream;
-import com.google.protobuf.CodedOutputStream;
+import com.thoughtworks.gauge.connection.ConnectionEstablisher;
+import com.thoughtworks.gauge.connection.MessageReader;
+import com.thoughtworks.gauge.connection.MessageWriter;
+import com.thoughtworks.gauge.connection.SocketTransport;
+import com.thoughtworks.gauge.connection.Transport;
+import com.thoughtworks.gauge.connection.TransportFactory;
 import gauge.messages.Api;
 import gauge.messages.Spec;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class GaugeConnection {
+    private static final long CONNECT_TIMEOUT_MILLIS = 5000;
+    // Requests in flight at once while pipelining, small enough that neither side fills its socket buffers
+    private static final int PIPELINE_WINDOW = 256;
+    private static final long FIRST_PIPELINED_MESSAGE_ID = 100;
 
     private final int port;
-    private Socket gaugeSocket;
+    private Transport transport;
+    private MessageReader messageReader;
+    private MessageWriter messageWriter;
 
     public GaugeConnection(int port) {
         this.port = port;
-        createConnection(5);
+        createConnection();
     }
 
     public GaugeConnection(Socket socket) {
-        gaugeSocket = socket;
-        port = socket.getPort();
+        this(new SocketTransport(socket));
     }
 
-    private void createConnection(int tries) {
-        if (tries == 0) {
-            throw new RuntimeException("Gauge API not started");
+    public GaugeConnection(Transport transport) {
+        this.transport = transport;
+        port = transport.getPort();
+    }
+
+    private MessageReader messageReader() throws IOException {
+        if (messageReader == null) {
+            messageReader = new MessageReader(transport.getInputStream());
+        }
+        return messageReader;
+    }
+
+    private MessageWriter messageWriter() throws IOException {
+        if (messageWriter == null) {
+            messageWriter = new MessageWriter(transport.getOutputStream());
         }
+        return messageWriter;
+    }
+
+    private void createConnection() {
         try {
-            gaugeSocket = new Socket("localhost", port);
+            transport = new ConnectionEstablisher(new TransportFactory(), CONNECT_TIMEOUT_MILLIS).connect("localhost", port);
         } catch (IOException e) {
-            try {
-                //waits for the process to start accepting connection
-                Thread.sleep(1000);
-            } catch (InterruptedException e1) {
-                e1.printStackTrace();
-            }
-            createConnection(tries - 1);
+            throw new RuntimeException("Gauge API not started", e);
         }
     }
 
@@ -98,22 +116,10 @@ public class GaugeConnection {
     }
 
     private Api.APIMessage getAPIResponse(Api.APIMessage message) throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        CodedOutputStream cos = CodedOutputStream.newInstance(stream);
-        byte[] bytes = message.toByteArray();
-        cos.writeRawVarint64(bytes.length);
-        cos.flush();
-        stream.write(bytes);
-        synchronized (gaugeSocket) {
-            gaugeSocket.getOutputStream().write(stream.toByteArray());
-            gaugeSocket.getOutputStream().flush();
-
-            InputStream remoteStream = gaugeSocket.getInputStream();
-            MessageLength messageLength = getMessageLength(remoteStream);
-            bytes = toBytes(messageLength);
+        synchronized (transport) {
+            messageWriter().writeMessage(message);
+            return messageReader().readMessage(Api.APIMessage.PARSER);
         }
-        Api.APIMessage apiMessage = Api.APIMessage.parseFrom(bytes);
-        return apiMessage;
     }
 
     public File getInstallationRoot() throws IOException {
@@ -141,6 +147,47 @@ public class GaugeConnection {
             e.printStackTrace();
             return null;
         }
+        return stepValueFrom(response);
+    }
+
+    /**
+     * Resolves step values for all the given step texts, pipelining the requests instead of waiting for each response.
+     * Responses are matched to their requests by message id. A step text gauge reports an error for is printed and
+     * resolved to an empty step value, like {@link #getStepValue(String)} does.
+     * @param stepTexts step texts as written in the step annotations
+     * @return step values in the same order as the given step texts
+     * @throws IOException On failure in communicating with gauge core, or a response to none of the pending requests.
+     */
+    public List<StepValue> getStepValues(List<String> stepTexts) throws IOException {
+        StepValue[] stepValues = new StepValue[stepTexts.size()];
+        synchronized (transport) {
+            for (int windowStart = 0; windowStart < stepTexts.size(); windowStart += PIPELINE_WINDOW) {
+                int windowEnd = Math.min(windowStart + PIPELINE_WINDOW, stepTexts.size());
+                for (int i = windowStart; i < windowEnd; i++) {
+                    Api.APIMessage request = Api.APIMessage.newBuilder(getStepValueRequest(stepTexts.get(i), false))
+                            .setMessageId(FIRST_PIPELINED_MESSAGE_ID + i)
+                            .build();
+                    messageWriter().write(request);
+                }
+                messageWriter().flush();
+                for (int i = windowStart; i < windowEnd; i++) {
+                    Api.APIMessage response = messageReader().readMessage(Api.APIMessage.PARSER);
+                    long index = response.getMessageId() - FIRST_PIPELINED_MESSAGE_ID;
+                    if (index < windowStart || index >= windowEnd || stepValues[(int) index] != null) {
+                        throw new IOException("Unexpected response with message id " + response.getMessageId() + " to step value requests "
+                                + (FIRST_PIPELINED_MESSAGE_ID + windowStart) + " to " + (FIRST_PIPELINED_MESSAGE_ID + windowEnd - 1));
+                    }
+                    if (response.getMessageType() == Api.APIMessage.APIMessageType.ErrorResponse) {
+                        System.out.println("Failed to get step value for '" + stepTexts.get((int) index) + "'. " + response.getError().getError());
+                    }
+                    stepValues[(int) index] = stepValueFrom(response);
+                }
+            }
+        }
+        return Arrays.asList(stepValues);
+    }
+
+    private StepValue stepValueFrom(Api.APIMessage response) {
         Api.GetStepValueResponse stepValueResponse = response.getStepValueResponse();
         Spec.ProtoStepValue protoStepValue = stepValueResponse.getStepValue();
         String stepValue = protoStepValue.getStepValue();
@@ -235,21 +282,4 @@ public class GaugeConnection {
                 .setExtractConceptRequest(request)
                 .build();
     }
-
-    private static MessageLength getMessageLength(InputStream is) throws IOException {
-        CodedInputStream codedInputStream = CodedInputStream.newInstance(is);
-        long size = codedInputStream.readRawVarint64();
-        return new MessageLength(size, codedInputStream);
-    }
-
-    private static byte[] toBytes(MessageLength messageLength) throws IOException {
-        long messageSize = messageLength.length;
-        CodedInputStream stream = messageLength.remainingStream;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        for (int i = 0; i < messageSize; i++) {
-            outputStream.write(stream.readRawByte());
-        }
-
-        return outputStream.toByteArray();
-    }
 }
@@ -20,13 +20,31 @@ package com.thoughtworks.gauge;
 public class GaugeConstant {
     public static final String GAUGE_INTERNAL_PORT = "GAUGE_INTERNAL_PORT";
     public static final String GAUGE_API_PORT = "GAUGE_API_PORT";
+    public static final String GAUGE_PROJECT_ROOT = "GAUGE_PROJECT_ROOT";
+    public static final String GAUGE_SCAN_CACHE_DIR = "gauge_scan_cache_dir";
+    public static final String GAUGE_SCAN_PACKAGES = "gauge_scan_packages";
+    public static final String GAUGE_SCAN_EXCLUDE_JARS = "gauge_scan_exclude_jars";
+    public static final String GAUGE_CONNECT_TIMEOUT = "gauge_connect_timeout";
+    public static final String GAUGE_TRANSPORT = "gauge_java_transport";
+    public static final String GAUGE_SOCKET_SEND_BUFFER_SIZE = "gauge_socket_send_buffer_size";
+    public static final String GAUGE_SOCKET_RECEIVE_BUFFER_SIZE = "gauge_socket_receive_buffer_size";
+    public static final String GAUGE_HOT_RELOAD = "gauge_hot_reload";
+    public static final String GAUGE_JAVA_DAEMON = "gauge_java_daemon";
+    public static final String GAUGE_JAVA_DEBUG_LOG = "gauge_java_debug_log";
     public static final String GAUGE = "gauge";
     public static final String ENV_FLAG = "--env";
     public static final String INIT_FLAG = "--init";
     public static final String DAEMONIZE_FLAG = "--daemonize";
+    public static final String DAEMON_FLAG = "--daemon";
     public static final String SIMPLE_CONSOLE_FLAG = "--simple-console";
     public static final String INSTALL_FLAG = "--install";
     public static final String STEP_ANNOTATION_QUALIFIER = "com.thoughtworks.gauge.Step";
     public static final String GAUGE_DEBUG_OPTS_ENV = "GAUGE_DEBUG_OPTS";
     public static final String SCREENSHOT_ENABLED = "screenshot_on_failure";
+    public static final String SCREENSHOT_FORMAT = "screenshot_format";
+    public static final String SCREENSHOT_SCALE = "screenshot_scale";
+    public static final String SCREENSHOT_QUALITY = "screenshot_quality";
+    public static final String SCREENSHOT_MAX_WIDTH = "screenshot_max_width";
+    public static final String SCREENSHOT_MAX_HEIGHT = "screenshot_max_height";
+    public static final String SCREENSHOT_MAX_BYTES = "screenshot_max_bytes";
 }
\ No newline at end of file
@@ -17,71 +17,66 @@
 
 package com.thoughtworks.gauge;
 
-import com.google.protobuf.CodedInputStream;
-import com.google.protobuf.CodedOutputStream;
+import com.thoughtworks.gauge.connection.ConnectionEstablisher;
+import com.thoughtworks.gauge.connection.MessageReader;
+import com.thoughtworks.gauge.connection.MessageWriter;
+import com.thoughtworks.gauge.connection.Transport;
+import com.thoughtworks.gauge.connection.TransportFactory;
 import com.thoughtworks.gauge.processor.*;
 import com.thoughtworks.gauge.processor.RefactorRequestProcessor;
+import com.thoughtworks.gauge.execution.ArgumentBinder;
+import com.thoughtworks.gauge.execution.MethodInvokers;
+import com.thoughtworks.gauge.scan.AnnotatedMethods;
+import com.thoughtworks.gauge.scan.ClassReloader;
+import com.thoughtworks.gauge.scan.JavassistScanner;
+import com.thoughtworks.gauge.scan.ScanCache;
+import com.thoughtworks.gauge.scan.ScanScope;
+import com.thoughtworks.gauge.scan.StepIndex;
 import gauge.messages.Messages;
-import org.reflections.Configuration;
-import org.reflections.Reflections;
-import org.reflections.scanners.MethodAnnotationsScanner;
 import org.reflections.util.ClasspathHelper;
-import org.reflections.util.ConfigurationBuilder;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-public class GaugeRuntime {
+public class GaugeRuntime implements RunnerDaemon.Session {
+    private static final long HOT_RELOAD_INTERVAL = 1000;
+    private static final List<Class<? extends Annotation>> HOOK_TYPES = Arrays.asList(BeforeSuite.class, AfterSuite.class,
+            BeforeSpec.class, AfterSpec.class, BeforeScenario.class, AfterScenario.class, BeforeStep.class, AfterStep.class,
+            BeforeClassSteps.class, AfterClassSteps.class);
 
-    private static MessageLength getMessageLength(InputStream is) throws IOException {
-        CodedInputStream codedInputStream = CodedInputStream.newInstance(is);
-        long size = codedInputStream.readRawVarint64();
-        return new MessageLength(size, codedInputStream);
-    }
-
-    private static byte[] toBytes(MessageLength messageLength) throws IOException {
-        long messageSize = messageLength.length;
-        CodedInputStream stream = messageLength.remainingStream;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        for (int i = 0; i < messageSize; i++) {
-            outputStream.write(stream.readRawByte());
-        }
-
-        return outputStream.toByteArray();
-    }
-
-    private static void writeMessage(Socket socket, Messages.Message message) throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        CodedOutputStream cos = CodedOutputStream.newInstance(stream);
-        byte[] bytes = message.toByteArray();
-        cos.writeRawVarint64(bytes.length);
-        cos.flush();
-        stream.write(bytes);
-        socket.getOutputStream().write(stream.toByteArray());
-        socket.getOutputStream().flush();
-    }
-
-    private static void dispatchMessages(Socket socket, HashMap<Messages.Message.MessageType, IMessageProcessor> messageProcessors) throws Exception {
-        InputStream inputStream = socket.getInputStream();
-        while (isConnected(socket)) {
+    private static void dispatchMessages(Transport transport, HashMap<Messages.Message.MessageType, IMessageProcessor> messageProcessors, ClassReloader classReloader) throws Exception {
+        MessageReader messageReader = new MessageReader(transport.getInputStream());
+        MessageWriter messageWriter = new MessageWriter(transport.getOutputStream());
+        boolean executing = false;
+        while (transport.isConnected()) {
             try {
-                MessageLength messageLength = getMessageLength(inputStream);
-                byte[] bytes = toBytes(messageLength);
-                Messages.Message message = Messages.Message.parseFrom(bytes);
+                Messages.Message message = messageReader.readMessage(Messages.Message.PARSER);
+                if (classReloader != null && !executing) {
+                    applyPendingReload(classReloader);
+                }
+                if (message.getMessageType() == Messages.Message.MessageType.ExecutionStarting) {
+                    executing = true;
+                } else if (message.getMessageType() == Messages.Message.MessageType.ExecutionEnding) {
+                    executing = false;
+                }
                 if (!messageProcessors.containsKey(message.getMessageType())) {
                     System.out.println("Invalid message");
                 } else {
                     IMessageProcessor messageProcessor = messageProcessors.get(message.getMessageType());
                     Messages.Message response = messageProcessor.process(message);
-                    writeMessage(socket, response);
+                    messageWriter.writeMessage(response);
                     if (message.getMessageType() == Messages.Message.MessageType.ExecutionEnding
                             || message.getMessageType() == Messages.Message.MessageType.KillProcessRequest) {
-                        socket.close();
+                        transport.close();
                         break;
                     }
                 }
@@ -93,86 +88,173 @@ public class GaugeRuntime {
         }
     }
 
-    private static boolean isConnected(Socket socket) {
-        return !socket.isClosed() && socket.isConnected();
+    private static void applyPendingReload(ClassReloader classReloader) {
+        try {
+            classReloader.applyPendingReload();
+        } catch (Throwable e) {
+            System.out.println("Failed to reload classes: " + e);
+        }
     }
 
-    private static Socket connect(String portEnvVariable) {
+    private static Transport connect(String portEnvVariable, ConnectionEstablisher connectionEstablisher) throws IOException {
         String gaugePort = System.getenv(portEnvVariable);
 
         if (gaugePort == null || gaugePort.equalsIgnoreCase("")) {
             throw new RuntimeException(portEnvVariable + " not set");
         }
         int port = Integer.parseInt(gaugePort);
-        Socket clientSocket;
-        for (; ; ) {
-            try {
-                clientSocket = new Socket("localhost", port);
-                break;
-            } catch (Exception ignored) {}
+        Transport transport = connectionEstablisher.connect("localhost", port);
+        DebugLog.log("Connected to gauge on port %d after %d attempts in %d ms", port,
+                connectionEstablisher.getLastConnectAttempts(), connectionEstablisher.getLastConnectDurationMillis());
+        return transport;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConnectionEstablisher connectionEstablisher = ConnectionEstablisher.fromEnvironment(new TransportFactory());
+        if (args.length == 2 && GaugeConstant.DAEMON_FLAG.equals(args[0])) {
+            GaugeRuntime runtime = new GaugeRuntime();
+            runtime.load(true);
+            new RunnerDaemon(runtime, connectionEstablisher, new File(args[1])).run();
+            return;
+        }
+        Transport gaugeTransport = connect(GaugeConstant.GAUGE_INTERNAL_PORT, connectionEstablisher);
+        Transport apiTransport = connect(GaugeConstant.GAUGE_API_PORT, connectionEstablisher);
+        GaugeRuntime runtime = new GaugeRuntime();
+        runtime.load(false);
+        runtime.run(gaugeTransport, apiTransport);
+    }
+
+    private final ScanScope scope = ScanScope.fromEnvironment();
+    private final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    private final ExecuteStepProcessor executeStepProcessor = new ExecuteStepProcessor();
+    private final HashMap<Messages.Message.MessageType, IMessageProcessor> messageProcessors = new HashMap<Messages.Message.MessageType, IMessageProcessor>() {{
+        put(Messages.Message.MessageType.ExecutionStarting, new SuiteExecutionStartingProcessor());
+        put(Messages.Message.MessageType.ExecutionEnding, new SuiteExecutionEndingProcessor());
+        put(Messages.Message.MessageType.SpecExecutionStarting, new SpecExecutionStartingProcessor());
+        put(Messages.Message.MessageType.SpecExecutionEnding, new SpecExecutionEndingProcessor());
+        put(Messages.Message.MessageType.ScenarioExecutionStarting, new ScenarioExecutionStartingProcessor());
+        put(Messages.Message.MessageType.ScenarioExecutionEnding, new ScenarioExecutionEndingProcessor());
+        put(Messages.Message.MessageType.StepExecutionStarting, new StepExecutionStartingProcessor());
+        put(Messages.Message.MessageType.StepExecutionEnding, new StepExecutionEndingProcessor());
+        put(Messages.Message.MessageType.ExecuteStep, executeStepProcessor);
+        put(Messages.Message.MessageType.StepValidateRequest, new ValidateStepProcessor());
+        put(Messages.Message.MessageType.StepNamesRequest, new StepNamesRequestProcessor());
+        put(Messages.Message.MessageType.SuiteDataStoreInit, new DataStoreInitializer());
+        put(Messages.Message.MessageType.SpecDataStoreInit, new DataStoreInitializer());
+        put(Messages.Message.MessageType.ScenarioDataStoreInit, new DataStoreInitializer());
+        put(Messages.Message.MessageType.KillProcessRequest, new KillProcessProcessor());
+        put(Messages.Message.MessageType.StepNameRequest, new StepNameRequestProcessor());
+        put(Messages.Message.MessageType.RefactorRequest, new RefactorRequestProcessor());
+    }};
+    private AnnotatedMethods annotatedMethods;
+    private ClassReloader classReloader;
+    private volatile GaugeConnection gaugeApiConnection;
+    private boolean registered;
+
+    /**
+     * Scans for step implementations and hooks. A daemon always keeps a class reloader, so classes recompiled
+     * between runs are picked up when the next run starts.
+     */
+    void load(boolean daemon) throws IOException {
+        annotatedMethods = scanForStepImplementations(scope, classLoader);
+        boolean hotReload = Boolean.parseBoolean(System.getenv(GaugeConstant.GAUGE_HOT_RELOAD));
+        if (!hotReload && !daemon) {
+            return;
+        }
+        List<File> directories = ClassReloader.directoriesOf(scope.filter(ClasspathHelper.forJavaClassPath()));
+        classReloader = createClassReloader(directories);
+        if (daemon) {
+            classReloader.initialize();
+        }
+        if (hotReload) {
+            watchForChanges(classReloader, directories);
         }
+    }
 
-        return clientSocket;
+    /**
+     * Serves one gauge run until it ends or the connection drops.
+     */
+    public void run(Transport gaugeTransport, Transport apiTransport) throws Exception {
+        gaugeApiConnection = new GaugeConnection(apiTransport);
+        if (!registered) {
+            registerStepsAndHooks(annotatedMethods, gaugeApiConnection);
+            registered = true;
+        } else if (classReloader != null) {
+            reloadIfChanged(classReloader);
+        }
+        dispatchMessages(gaugeTransport, messageProcessors, classReloader);
     }
 
-    public static void main(String[] args) throws Exception {
-        Socket gaugeSocket = connect(GaugeConstant.GAUGE_INTERNAL_PORT);
-        Socket apiSocket = connect(GaugeConstant.GAUGE_API_PORT);
-        final GaugeConnection gaugeApiConnection = new GaugeConnection(apiSocket);
-
-        HashMap<Messages.Message.MessageType, IMessageProcessor> messageProcessors = new HashMap<Messages.Message.MessageType, IMessageProcessor>() {{
-            put(Messages.Message.MessageType.ExecutionStarting, new SuiteExecutionStartingProcessor());
-            put(Messages.Message.MessageType.ExecutionEnding, new SuiteExecutionEndingProcessor());
-            put(Messages.Message.MessageType.SpecExecutionStarting, new SpecExecutionStartingProcessor());
-            put(Messages.Message.MessageType.SpecExecutionEnding, new SpecExecutionEndingProcessor());
-            put(Messages.Message.MessageType.ScenarioExecutionStarting, new ScenarioExecutionStartingProcessor());
-            put(Messages.Message.MessageType.ScenarioExecutionEnding, new ScenarioExecutionEndingProcessor());
-            put(Messages.Message.MessageType.StepExecutionStarting, new StepExecutionStartingProcessor());
-            put(Messages.Message.MessageType.StepExecutionEnding, new StepExecutionEndingProcessor());
-            put(Messages.Message.MessageType.ExecuteStep, new ExecuteStepProcessor());
-            put(Messages.Message.MessageType.StepValidateRequest, new ValidateStepProcessor());
-            put(Messages.Message.MessageType.StepNamesRequest, new StepNamesRequestProcessor());
-            put(Messages.Message.MessageType.SuiteDataStoreInit, new DataStoreInitializer());
-            put(Messages.Message.MessageType.SpecDataStoreInit, new DataStoreInitializer());
-            put(Messages.Message.MessageType.ScenarioDataStoreInit, new DataStoreInitializer());
-            put(Messages.Message.MessageType.KillProcessRequest, new KillProcessProcessor());
-            put(Messages.Message.MessageType.StepNameRequest, new StepNameRequestProcessor());
-            put(Messages.Message.MessageType.RefactorRequest, new RefactorRequestProcessor());
-        }};
-
-        scanForStepImplementations(gaugeApiConnection);
-        dispatchMessages(gaugeSocket, messageProcessors);
+    /**
+     * Drops the state a previous run left behind: data stores, step class instances and execution pipelines.
+     */
+    public void reset() {
+        DataStoreFactory.getSuiteDataStore().clear();
+        DataStoreFactory.getSpecDataStore().clear();
+        DataStoreFactory.getScenarioDataStore().clear();
+        ClassInstanceManager.clearCache();
+        executeStepProcessor.clearPipelines();
+    }
+
+    private ClassReloader createClassReloader(List<File> directories) {
+        return new ClassReloader(directories, annotatedMethods, new JavassistScanner(scope), classLoader, new ClassReloader.Listener() {
+            public void reloaded(AnnotatedMethods annotatedMethods, Set<String> reloadedClasses) throws Exception {
+                MethodInvokers.evict(reloadedClasses);
+                ArgumentBinder.evict(reloadedClasses);
+                registerStepsAndHooks(annotatedMethods, gaugeApiConnection);
+                executeStepProcessor.clearPipelines();
+                ClassInstanceManager.evict(reloadedClasses);
+            }
+        }, HOT_RELOAD_INTERVAL);
     }
 
-    private static void scanForHooks(Reflections reflections) {
-        HooksRegistry.setBeforeSuiteHooks(reflections.getMethodsAnnotatedWith(BeforeSuite.class));
-        HooksRegistry.setAfterSuiteHooks(reflections.getMethodsAnnotatedWith(AfterSuite.class));
-        HooksRegistry.setBeforeSpecHooks(reflections.getMethodsAnnotatedWith(BeforeSpec.class));
-        HooksRegistry.setAfterSpecHooks(reflections.getMethodsAnnotatedWith(AfterSpec.class));
-        HooksRegistry.setBeforeScenarioHooks(reflections.getMethodsAnnotatedWith(BeforeScenario.class));
-        HooksRegistry.setAfterScenarioHooks(reflections.getMethodsAnnotatedWith(AfterScenario.class));
-        HooksRegistry.setBeforeStepHooks(reflections.getMethodsAnnotatedWith(BeforeStep.class));
-        HooksRegistry.setAfterStepHooks(reflections.getMethodsAnnotatedWith(AfterStep.class));
-        HooksRegistry.setBeforeClassStepsHooks(reflections.getMethodsAnnotatedWith(BeforeClassSteps.class));
-        HooksRegistry.setAfterClassStepsHooks(reflections.getMethodsAnnotatedWith(AfterClassSteps.class));
+    private static void watchForChanges(ClassReloader classReloader, List<File> directories) {
+        Thread watcher = new Thread(classReloader, "gauge-class-reloader");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("Watching " + directories + " for changed classes");
+    }
+
+    private static void reloadIfChanged(ClassReloader classReloader) {
+        try {
+            classReloader.reloadIfChanged();
+        } catch (Throwable e) {
+            System.out.println("Failed to reload classes: " + e);
+        }
+    }
+
+    private static void scanForHooks(AnnotatedMethods annotatedMethods) {
+        Map<Class<? extends Annotation>, Set<Method>> hooks = new HashMap<Class<? extends Annotation>, Set<Method>>();
+        for (Class<? extends Annotation> hookType : HOOK_TYPES) {
+            hooks.put(hookType, annotatedMethods.get(hookType));
+        }
+        HooksRegistry.setHooks(hooks);
+    }
+
+    private static AnnotatedMethods scanForStepImplementations(ScanScope scope, ClassLoader classLoader) throws IOException {
+        AnnotatedMethods annotatedMethods = new AnnotatedMethods();
+        List<URL> unindexed = StepIndex.load(scope.filter(ClasspathHelper.forJavaClassPath()), classLoader, annotatedMethods);
+        if (!unindexed.isEmpty()) {
+            annotatedMethods.addAll(ScanCache.fromEnvironment(scope).scan(unindexed, classLoader));
+        }
+        return annotatedMethods;
     }
 
-    private static void scanForStepImplementations(GaugeConnection gaugeApiConnection) {
-        Configuration config = new ConfigurationBuilder()
-                .setScanners(new MethodAnnotationsScanner())
-                .addUrls(ClasspathHelper.forJavaClassPath());
-        Reflections reflections = new Reflections(config);
-        Set<Method> stepImplementations = reflections.getMethodsAnnotatedWith(Step.class);
-        for (Method method : stepImplementations) {
+    private static void registerStepsAndHooks(AnnotatedMethods annotatedMethods, GaugeConnection gaugeApiConnection) throws IOException {
+        List<String> stepTexts = new ArrayList<String>();
+        List<Method> stepMethods = new ArrayList<Method>();
+        for (Method method : annotatedMethods.get(Step.class)) {
             Step annotation = method.getAnnotation(Step.class);
             if (annotation != null) {
                 for (String stepName : annotation.value()) {
-                    StepValue stepValue = gaugeApiConnection.getStepValue(stepName);
-                    StepRegistry.addStepImplementation(stepValue, method);
+                    stepTexts.add(stepName);
+                    stepMethods.add(method);
                 }
             }
         }
-        scanForHooks(reflections);
+        List<StepValue> stepValues = new StepValueResolver(gaugeApiConnection).resolve(stepTexts);
+        StepRegistry.setStepImplementations(stepValues, stepMethods);
+        scanForHooks(annotatedMethods);
     }
 
 }
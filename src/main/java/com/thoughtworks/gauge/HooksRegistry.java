@@ -17,111 +17,200 @@
 
 package com.thoughtworks.gauge;
 
+import com.thoughtworks.gauge.execution.MethodInvokers;
+
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * The registered hooks. Readers use an immutable snapshot published through a volatile field, so lookups never
+ * wait; setting hooks builds a new snapshot and swaps it in.
+ */
 public class HooksRegistry {
-    private static Set<Method> beforeSuiteHooks = new HashSet<Method>();
-    private static Set<Method> afterSuiteHooks = new HashSet<Method>();
-    private static Set<Method> beforeSpecHooks = new HashSet<Method>();
-    private static Set<Method> afterSpecHooks = new HashSet<Method>();
-    private static Set<Method> beforeScenarioHooks = new HashSet<Method>();
-    private static Set<Method> afterScenarioHooks = new HashSet<Method>();
-    private static Set<Method> beforeStepHooks = new HashSet<Method>();
-    private static Set<Method> afterStepHooks = new HashSet<Method>();
-    private static Set<Method> afterClassStepsHooks = new HashSet<Method>();
-    private static Set<Method> beforeClassStepsHooks = new HashSet<Method>();
+    private static volatile Hooks hooks = new Hooks(new HashMap<Class<? extends Annotation>, Set<Method>>());
 
     public static Set<Method> getBeforeSpecHooks() {
-        return beforeSpecHooks;
+        return hooks.get(BeforeSpec.class);
     }
 
     public static void setBeforeSpecHooks(Set<Method> beforeSpecHooks) {
-        HooksRegistry.beforeSpecHooks = beforeSpecHooks;
+        setHooks(BeforeSpec.class, beforeSpecHooks);
     }
 
     public static Set<Method> getAfterSpecHooks() {
-        return afterSpecHooks;
+        return hooks.get(AfterSpec.class);
     }
 
     public static void setAfterSpecHooks(Set<Method> afterSpecHooks) {
-        HooksRegistry.afterSpecHooks = afterSpecHooks;
+        setHooks(AfterSpec.class, afterSpecHooks);
     }
 
     public static Set<Method> getBeforeScenarioHooks() {
-        return beforeScenarioHooks;
+        return hooks.get(BeforeScenario.class);
     }
 
     public static void setBeforeScenarioHooks(Set<Method> beforeScenarioHooks) {
-        HooksRegistry.beforeScenarioHooks = beforeScenarioHooks;
+        setHooks(BeforeScenario.class, beforeScenarioHooks);
     }
 
     public static Set<Method> getAfterScenarioHooks() {
-        return afterScenarioHooks;
+        return hooks.get(AfterScenario.class);
     }
 
     public static void setAfterScenarioHooks(Set<Method> afterScenarioHooks) {
-        HooksRegistry.afterScenarioHooks = afterScenarioHooks;
+        setHooks(AfterScenario.class, afterScenarioHooks);
     }
 
     public static Set<Method> getBeforeStepHooks() {
-        return beforeStepHooks;
+        return hooks.get(BeforeStep.class);
     }
 
     public static void setBeforeStepHooks(Set<Method> beforeStepHooks) {
-        HooksRegistry.beforeStepHooks = beforeStepHooks;
+        setHooks(BeforeStep.class, beforeStepHooks);
     }
 
     public static Set<Method> getAfterStepHooks() {
-        return afterStepHooks;
+        return hooks.get(AfterStep.class);
     }
 
     public static void setAfterStepHooks(Set<Method> afterStepHooks) {
-        HooksRegistry.afterStepHooks = afterStepHooks;
+        setHooks(AfterStep.class, afterStepHooks);
     }
 
     public static Set<Method> getBeforeSuiteHooks() {
-        return beforeSuiteHooks;
+        return hooks.get(BeforeSuite.class);
     }
 
     public static void setBeforeSuiteHooks(Set<Method> beforeSuiteHooks) {
-        HooksRegistry.beforeSuiteHooks = beforeSuiteHooks;
+        setHooks(BeforeSuite.class, beforeSuiteHooks);
     }
 
     public static Set<Method> getAfterSuiteHooks() {
-        return afterSuiteHooks;
+        return hooks.get(AfterSuite.class);
     }
 
     public static void setAfterSuiteHooks(Set<Method> afterSuiteHooks) {
-        HooksRegistry.afterSuiteHooks = afterSuiteHooks;
+        setHooks(AfterSuite.class, afterSuiteHooks);
     }
 
     public static void setAfterClassStepsHooks(Set<Method> afterClassStepsHooks) {
-        HooksRegistry.afterClassStepsHooks = afterClassStepsHooks;
+        setHooks(AfterClassSteps.class, afterClassStepsHooks);
     }
 
     public static void setBeforeClassStepsHooks(Set<Method> beforeClassStepsHooks) {
-        HooksRegistry.beforeClassStepsHooks = beforeClassStepsHooks;
+        setHooks(BeforeClassSteps.class, beforeClassStepsHooks);
+    }
+
+    private static void setHooks(Class<? extends Annotation> hookType, Set<Method> hooksOfType) {
+        setHooks(Collections.<Class<? extends Annotation>, Set<Method>>singletonMap(hookType, hooksOfType), false);
+    }
+
+    /**
+     * Replaces all hooks at once, e.g. after a rescan.
+     *
+     * @param hooksByType the hooks keyed by their annotation, e.g. BeforeSpec; hook types that are missing have no hooks
+     */
+    public static void setHooks(Map<Class<? extends Annotation>, Set<Method>> hooksByType) {
+        setHooks(hooksByType, true);
+    }
+
+    private static void setHooks(Map<Class<? extends Annotation>, Set<Method>> hooksByType, boolean replace) {
+        for (Set<Method> hooksOfType : hooksByType.values()) {
+            prepareInvokers(hooksOfType);
+        }
+        synchronized (HooksRegistry.class) {
+            Map<Class<? extends Annotation>, Set<Method>> all = replace ? new HashMap<Class<? extends Annotation>, Set<Method>>() : new HashMap<Class<? extends Annotation>, Set<Method>>(hooks.hooks);
+            all.putAll(hooksByType);
+            hooks = new Hooks(all);
+        }
+    }
+
+    private static void prepareInvokers(Set<Method> hooks) {
+        if (hooks == null) {
+            return;
+        }
+        for (Method hook : hooks) {
+            MethodInvokers.prepare(hook);
+        }
     }
 
+    /**
+     * @return a copy of the BeforeClassSteps hooks declared in the class and its superclasses, superclass hooks first
+     */
     public static HashSet<Method> getBeforeClassStepsHooksOfClass(Class<?> aClass) {
-        HashSet<Method> beforeClassMethods = new HashSet<Method>();
-        for (Method beforeClassStepsHook : beforeClassStepsHooks) {
-            if (beforeClassStepsHook.getDeclaringClass().equals(aClass)){
-                beforeClassMethods.add(beforeClassStepsHook);
+        return new LinkedHashSet<Method>(hooks.ofClass(BeforeClassSteps.class, aClass, true));
+    }
+
+    /**
+     * @return a copy of the AfterClassSteps hooks declared in the class and its superclasses, subclass hooks first
+     */
+    public static HashSet<Method> getAfterClassStepsHooksOfClass(Class<?> aClass) {
+        return new LinkedHashSet<Method>(hooks.ofClass(AfterClassSteps.class, aClass, false));
+    }
+
+    /**
+     * The registered hooks, never changed once published. Class scoped hooks are looked up per class on first use.
+     */
+    private static class Hooks {
+        private final Map<Class<? extends Annotation>, Set<Method>> hooks;
+        private final ConcurrentMap<Class<?>, Set<Method>> beforeClassStepsHooksByClass = new ConcurrentHashMap<Class<?>, Set<Method>>();
+        private final ConcurrentMap<Class<?>, Set<Method>> afterClassStepsHooksByClass = new ConcurrentHashMap<Class<?>, Set<Method>>();
+
+        Hooks(Map<Class<? extends Annotation>, Set<Method>> hooks) {
+            Map<Class<? extends Annotation>, Set<Method>> copies = new HashMap<Class<? extends Annotation>, Set<Method>>();
+            for (Map.Entry<Class<? extends Annotation>, Set<Method>> entry : hooks.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    copies.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<Method>(entry.getValue())));
+                }
+            }
+            this.hooks = copies;
+        }
+
+        Set<Method> get(Class<? extends Annotation> hookType) {
+            Set<Method> hooksOfType = hooks.get(hookType);
+            return hooksOfType == null ? Collections.<Method>emptySet() : hooksOfType;
+        }
+
+        Set<Method> ofClass(Class<? extends Annotation> hookType, Class<?> aClass, boolean superclassFirst) {
+            ConcurrentMap<Class<?>, Set<Method>> byClass = superclassFirst ? beforeClassStepsHooksByClass : afterClassStepsHooksByClass;
+            Set<Method> hooksOfClass = byClass.get(aClass);
+            if (hooksOfClass == null) {
+                hooksOfClass = hooksOfClass(get(hookType), aClass, superclassFirst);
+                Set<Method> existing = byClass.putIfAbsent(aClass, hooksOfClass);
+                if (existing != null) {
+                    hooksOfClass = existing;
+                }
             }
+            return hooksOfClass;
         }
-        return beforeClassMethods;
     }
 
-    public static HashSet<Method> getAfterClassStepsHooksOfClass(Class<?> aClass) {
-        HashSet<Method> afterClassMethods = new HashSet<Method>();
-        for (Method afterClassStepHook : afterClassStepsHooks) {
-            if (afterClassStepHook.getDeclaringClass().equals(aClass)){
-                afterClassMethods.add(afterClassStepHook);
+    private static Set<Method> hooksOfClass(Set<Method> hooks, Class<?> aClass, boolean superclassFirst) {
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for (Class<?> current = aClass; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(current);
+        }
+        if (superclassFirst) {
+            Collections.reverse(hierarchy);
+        }
+        Set<Method> hooksOfClass = new LinkedHashSet<Method>();
+        for (Class<?> declaringClass : hierarchy) {
+            for (Method hook : hooks) {
+                if (hook.getDeclaringClass().equals(declaringClass)) {
+                    hooksOfClass.add(hook);
+                }
             }
         }
-        return afterClassMethods;
+        return hooksOfClass.isEmpty() ? Collections.<Method>emptySet() : Collections.unmodifiableSet(hooksOfClass);
     }
 }
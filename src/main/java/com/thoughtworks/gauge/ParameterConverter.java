@@ -0,0 +1,29 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+/**
+ * Converts step parameter values to the type of the step method's parameter.
+ * Implementations are discovered at startup with {@link java.util.ServiceLoader}: list them in
+ * META-INF/services/com.thoughtworks.gauge.ParameterConverter. They take precedence over the built-in converters.
+ */
+public interface ParameterConverter {
+    boolean canConvert(Class<?> type);
+
+    Object convert(String value, Class<?> type) throws Exception;
+}
@@ -0,0 +1,33 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures the whole screen with AWT Robot. Takes no screenshot in a headless environment.
+ */
+class RobotScreenshotProvider implements ScreenshotProvider {
+    public BufferedImage takeScreenshot() throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return new Robot().createScreenCapture(new Rectangle(Toolkit.getDefaultToolkit().getScreenSize()));
+    }
+}
@@ -0,0 +1,382 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import com.thoughtworks.gauge.connection.ConnectionEstablisher;
+import com.thoughtworks.gauge.connection.Transport;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a warmed up runner alive between gauge runs, see {@link GaugeConstant#GAUGE_JAVA_DAEMON}.
+ * The launcher finds the daemon's port and a random token in the state file, which only the owner can read, and sends
+ * one line per request starting with the token: "run &lt;internal port&gt; &lt;api port&gt;" connects to a gauge run,
+ * answered with "started" and "done" once the run ends (or "busy" while another run is served), and "stop" shuts the
+ * daemon down once the current run is done. Closing the request connection ends the run.
+ * Between "started" and "done", whatever the run prints is sent as "out &lt;length&gt;" or "err &lt;length&gt;" lines,
+ * each followed by that many bytes, for the launcher to copy to its own stdout or stderr, which gauge shows.
+ */
+class RunnerDaemon {
+    static final String RUN = "run";
+    static final String STOP = "stop";
+    static final String STARTED = "started";
+    static final String BUSY = "busy";
+    static final String DONE = "done";
+    static final String OUT = "out";
+    static final String ERR = "err";
+    static final int IDLE_TIMEOUT = 30 * 60 * 1000;
+    private static final int REQUEST_TIMEOUT = 10 * 1000;
+
+    interface Session {
+        /**
+         * Serves one gauge run until it ends or the connection drops.
+         */
+        void run(Transport gaugeTransport, Transport apiTransport) throws Exception;
+
+        /**
+         * Drops the state a previous run left behind.
+         */
+        void reset();
+    }
+
+    private final Session session;
+    private final ConnectionEstablisher connectionEstablisher;
+    private final File stateFile;
+    private final int idleTimeout;
+    private final String token = newToken();
+    private final RunOutput out = new RunOutput(OUT, System.out);
+    private final RunOutput err = new RunOutput(ERR, System.err);
+    private final PrintStream stdout = new PrintStream(new BufferedOutputStream(out), true);
+    private final PrintStream stderr = new PrintStream(new BufferedOutputStream(err), true);
+    private final Set<Thread> requestThreads = new HashSet<Thread>();
+    private boolean running;
+    private boolean stopping;
+    private long lastActive = System.currentTimeMillis();
+    private int runs;
+    private ServerSocket serverSocket;
+
+    RunnerDaemon(Session session, ConnectionEstablisher connectionEstablisher, File stateFile) {
+        this(session, connectionEstablisher, stateFile, IDLE_TIMEOUT);
+    }
+
+    RunnerDaemon(Session session, ConnectionEstablisher connectionEstablisher, File stateFile, int idleTimeout) {
+        this.session = session;
+        this.connectionEstablisher = connectionEstablisher;
+        this.stateFile = stateFile;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Serves requests until stopped or idle for longer than the idle timeout, and returns once the requests being
+     * handled are done.
+     */
+    void run() throws IOException, InterruptedException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        serverSocket.setSoTimeout(idleTimeout);
+        PrintStream log = System.out;
+        PrintStream errorLog = System.err;
+        System.setOut(stdout);
+        System.setErr(stderr);
+        try {
+            writeStateFile(serverSocket.getLocalPort());
+            System.out.println("Runner daemon listening on port " + serverSocket.getLocalPort());
+            while (true) {
+                try {
+                    handleInBackground(serverSocket.accept());
+                } catch (SocketTimeoutException e) {
+                    if (stopIfIdle()) {
+                        System.out.println("Runner daemon idle for " + idleTimeout + " ms, exiting");
+                        return;
+                    }
+                } catch (SocketException e) {
+                    if (serverSocket.isClosed()) {
+                        System.out.println("Runner daemon stopped");
+                        return;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            stateFile.delete();
+            serverSocket.close();
+            for (Thread thread : activeRequestThreads()) {
+                thread.join();
+            }
+            stdout.flush();
+            stderr.flush();
+            System.setOut(log);
+            System.setErr(errorLog);
+        }
+    }
+
+    private void writeStateFile(int port) throws IOException {
+        File parent = stateFile.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File temp = new File(parent, stateFile.getName() + ".tmp");
+        temp.delete();
+        if (!temp.createNewFile() || !ownerOnly(temp)) {
+            throw new IOException("Could not create " + temp + " readable by its owner only");
+        }
+        Writer writer = new FileWriter(temp);
+        try {
+            writer.write(port + " " + token);
+        } finally {
+            writer.close();
+        }
+        // The launcher polls for the state file, so it must never see a half written one
+        if (!temp.renameTo(stateFile)) {
+            stateFile.delete();
+            if (!temp.renameTo(stateFile)) {
+                throw new IOException("Could not write " + stateFile);
+            }
+        }
+    }
+
+    // The token in the file is all that keeps other local users from running steps as the owner
+    private static boolean ownerOnly(File file) {
+        return file.setReadable(false, false) && file.setWritable(false, false)
+                && file.setReadable(true, true) && file.setWritable(true, true);
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    private void handleInBackground(final Socket client) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    handle(client);
+                } catch (Throwable e) {
+                    System.out.println("Runner daemon request failed: " + e);
+                } finally {
+                    close(client);
+                    synchronized (requestThreads) {
+                        requestThreads.remove(Thread.currentThread());
+                    }
+                }
+            }
+        }, "gauge-daemon-request");
+        thread.setDaemon(true);
+        synchronized (requestThreads) {
+            requestThreads.add(thread);
+        }
+        thread.start();
+    }
+
+    private List<Thread> activeRequestThreads() {
+        synchronized (requestThreads) {
+            return new ArrayList<Thread>(requestThreads);
+        }
+    }
+
+    private void handle(Socket client) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), "UTF-8"));
+        OutputStream clientStream = client.getOutputStream();
+        Writer writer = new OutputStreamWriter(clientStream, "UTF-8");
+        client.setSoTimeout(REQUEST_TIMEOUT);
+        String line = reader.readLine();
+        client.setSoTimeout(0);
+        if (line == null) {
+            return;
+        }
+        String[] request = line.trim().split(" ");
+        if (!MessageDigest.isEqual(token.getBytes("UTF-8"), request[0].getBytes("UTF-8"))) {
+            System.out.println("Runner daemon rejected a request without a valid token");
+            return;
+        }
+        if (request.length == 2 && request[1].equals(STOP)) {
+            stop();
+            return;
+        }
+        if (request.length != 4 || !request[1].equals(RUN)) {
+            throw new IllegalArgumentException("Unknown request: " + request[1]);
+        }
+        if (!startRun()) {
+            writeLine(writer, clientStream, BUSY);
+            return;
+        }
+        try {
+            Transport gaugeTransport = connectionEstablisher.connect("localhost", Integer.parseInt(request[2]));
+            Transport apiTransport = connectionEstablisher.connect("localhost", Integer.parseInt(request[3]));
+            writeLine(writer, clientStream, STARTED);
+            closeWhenDisconnected(reader, gaugeTransport);
+            out.connect(clientStream);
+            err.connect(clientStream);
+            try {
+                if (runs++ > 0) {
+                    session.reset();
+                }
+                session.run(gaugeTransport, apiTransport);
+            } finally {
+                stdout.flush();
+                stderr.flush();
+                out.disconnect();
+                err.disconnect();
+                close(gaugeTransport);
+                close(apiTransport);
+            }
+            writeLine(writer, clientStream, DONE);
+        } finally {
+            endRun();
+        }
+    }
+
+    private synchronized boolean startRun() {
+        if (running || stopping) {
+            return false;
+        }
+        running = true;
+        return true;
+    }
+
+    private synchronized void endRun() throws IOException {
+        running = false;
+        lastActive = System.currentTimeMillis();
+        if (stopping) {
+            serverSocket.close();
+        }
+    }
+
+    // A run in progress, e.g. of another terminal, is finished before the daemon goes away
+    private synchronized void stop() throws IOException {
+        stopping = true;
+        if (!running) {
+            serverSocket.close();
+        }
+    }
+
+    private synchronized boolean stopIfIdle() {
+        if (!running && System.currentTimeMillis() - lastActive >= idleTimeout) {
+            stopping = true;
+        }
+        return stopping && !running;
+    }
+
+    // The launcher goes away when gauge kills it, which has to end the run the same way killing the runner would
+    private void closeWhenDisconnected(final BufferedReader reader, final Transport gaugeTransport) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (reader.readLine() != null) {
+                    }
+                } catch (IOException ignored) {
+                }
+                close(gaugeTransport);
+            }
+        }, "gauge-daemon-client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Threads a run started can still be printing, so lines are written under the same lock as their output
+    private static void writeLine(Writer writer, OutputStream clientStream, String line) throws IOException {
+        synchronized (clientStream) {
+            writer.write(line + "\n");
+            writer.flush();
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            if (transport.isConnected()) {
+                transport.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Stands in for stdout or stderr of the daemon: output goes to the launcher of the run being served, and to the
+     * daemon log when no run is served.
+     */
+    private static class RunOutput extends OutputStream {
+        private final String channel;
+        private final OutputStream log;
+        private volatile OutputStream client;
+
+        RunOutput(String channel, OutputStream log) {
+            this.channel = channel;
+            this.log = log;
+        }
+
+        void connect(OutputStream client) {
+            this.client = client;
+        }
+
+        void disconnect() {
+            client = null;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            OutputStream client = this.client;
+            if (client == null) {
+                log.write(bytes, offset, length);
+                return;
+            }
+            synchronized (client) {
+                client.write((channel + " " + length + "\n").getBytes("UTF-8"));
+                client.write(bytes, offset, length);
+                client.flush();
+            }
+        }
+
+        public void flush() throws IOException {
+            if (client == null) {
+                log.flush();
+            }
+        }
+    }
+}
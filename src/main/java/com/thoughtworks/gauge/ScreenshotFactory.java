@@ -17,33 +17,268 @@
 
 package com.thoughtworks.gauge;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
+/**
+ * Takes screenshots on failure. The {@link ScreenshotProvider} is called on the executing thread at the moment of the
+ * failure, before any later hooks run; only the encoding happens in the background, and the executing thread waits
+ * for the bytes when the result is sent to gauge.
+ */
 public class ScreenshotFactory {
 
     public static final String IMAGE_EXTENSION = "png";
+    private static final byte[] NO_SCREENSHOT = new byte[0];
+    private static final float MIN_QUALITY = 0.3f;
+    private static final int MAX_SHRINK_ATTEMPTS = 10;
+    private static final Settings SETTINGS = Settings.fromEnvironment();
+    private static final ScreenshotProvider PROVIDER = loadProvider();
+    private static final ExecutorService ENCODE_EXECUTOR = Executors.newSingleThreadExecutor(daemonThreads("gauge-screenshot-encoder"));
+
+    private final ScreenshotProvider provider;
+    private final Settings settings;
+
+    public ScreenshotFactory() {
+        this(PROVIDER, SETTINGS);
+    }
+
+    ScreenshotFactory(ScreenshotProvider provider, Settings settings) {
+        this.provider = provider;
+        this.settings = settings;
+    }
+
+    private static ScreenshotProvider loadProvider() {
+        Iterator<ScreenshotProvider> providers = ServiceLoader.load(ScreenshotProvider.class).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+                return providers.next();
+            } catch (ServiceConfigurationError e) {
+                System.out.println("Could not load screenshot provider: " + e.getMessage());
+            }
+        }
+        return new RobotScreenshotProvider();
+    }
 
     public byte[] getScreenshotBytes() {
+        try {
+            return takeScreenshot().get();
+        } catch (Exception e) {
+            System.out.println("Failed to take screenshot: " + e.getMessage());
+            return NO_SCREENSHOT;
+        }
+    }
+
+    /**
+     * Captures the screen and starts encoding the image. The bytes are empty when screenshots are disabled or could
+     * not be taken.
+     */
+    public Future<byte[]> takeScreenshot() {
+        if (!settings.enabled) {
+            return noScreenshot();
+        }
+        final BufferedImage image;
+        try {
+            image = provider.takeScreenshot();
+        } catch (Throwable e) {
+            System.out.println("Failed to take screenshot: " + e.getMessage());
+            return noScreenshot();
+        }
+        if (image == null) {
+            return noScreenshot();
+        }
+        return ENCODE_EXECUTOR.submit(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                try {
+                    return encode(image, settings);
+                } catch (Throwable e) {
+                    System.out.println("Failed to encode screenshot: " + e.getMessage());
+                    return NO_SCREENSHOT;
+                }
+            }
+        });
+    }
+
+    private static Future<byte[]> noScreenshot() {
+        FutureTask<byte[]> screenshot = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() {
+                return NO_SCREENSHOT;
+            }
+        });
+        screenshot.run();
+        return screenshot;
+    }
+
+    /**
+     * Encodes the image within the configured resolution. Lossy formats lose quality and then all formats are
+     * scaled down further until the bytes fit the configured limit; the screenshot is dropped if they never do.
+     */
+    static byte[] encode(BufferedImage image, Settings settings) throws IOException {
+        BufferedImage resized = resize(image, settings);
+        float quality = settings.quality;
+        byte[] bytes = write(resized, settings.format, quality);
+        for (int attempt = 0; settings.maxBytes > 0 && bytes.length > settings.maxBytes; attempt++) {
+            if (attempt == MAX_SHRINK_ATTEMPTS) {
+                System.out.println("Screenshot dropped, it is larger than " + settings.maxBytes + " bytes");
+                return NO_SCREENSHOT;
+            }
+            if (isLossy(settings.format) && (quality < 0 || quality > MIN_QUALITY)) {
+                quality = Math.max(MIN_QUALITY, (quality < 0 ? 0.75f : quality) - 0.15f);
+            } else {
+                resized = scale(resized, Math.sqrt((double) settings.maxBytes / bytes.length) * 0.9, isLossy(settings.format));
+            }
+            bytes = write(resized, settings.format, quality);
+        }
+        return bytes;
+    }
+
+    private static byte[] write(BufferedImage image, String format, float quality) throws IOException {
         ByteArrayOutputStream imageBytes = new ByteArrayOutputStream();
-        if (shouldTakeScreenshot()) {
-            try {
-                BufferedImage image = null;
-                image = new Robot().createScreenCapture(new Rectangle(Toolkit.getDefaultToolkit().getScreenSize()));
-                ImageIO.write(image, IMAGE_EXTENSION, imageBytes);
-            } catch (Throwable e) {
-                System.out.println("Failed to take screenshot: " + e.getMessage());
-                return new byte[0];
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format " + format);
+        }
+        ImageWriter writer = writers.next();
+        ImageOutputStream output = ImageIO.createImageOutputStream(imageBytes);
+        try {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (quality >= 0 && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
             }
+            writer.write(null, new IIOImage(isLossy(format) ? withoutAlpha(image) : image, null, null), param);
+        } finally {
+            writer.dispose();
+            output.close();
         }
         return imageBytes.toByteArray();
     }
 
-    private boolean shouldTakeScreenshot() {
-        String screenshotEnabled = System.getenv(GaugeConstant.SCREENSHOT_ENABLED);
-        return !(screenshotEnabled == null || screenshotEnabled.toLowerCase().equals("false"));
+    private static boolean isLossy(String format) {
+        return format.equals("jpg") || format.equals("jpeg");
     }
-}
 
+    private static BufferedImage resize(BufferedImage image, Settings settings) {
+        double scale = settings.scale > 0 && settings.scale < 1 ? settings.scale : 1;
+        if (settings.maxWidth > 0) {
+            scale = Math.min(scale, (double) settings.maxWidth / image.getWidth());
+        }
+        if (settings.maxHeight > 0) {
+            scale = Math.min(scale, (double) settings.maxHeight / image.getHeight());
+        }
+        return scale(image, scale, isLossy(settings.format));
+    }
+
+    private static BufferedImage scale(BufferedImage image, double scale, boolean dropAlpha) {
+        if (scale <= 0 || scale >= 1) {
+            return image;
+        }
+        int width = Math.max(1, (int) (image.getWidth() * scale));
+        int height = Math.max(1, (int) (image.getHeight() * scale));
+        return draw(image, width, height, dropAlpha || !image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static BufferedImage withoutAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        return draw(image, image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, int type) {
+        BufferedImage drawn = new BufferedImage(width, height, type);
+        Graphics2D graphics = drawn.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return drawn;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Screenshot settings, read from the environment once.
+     */
+    static class Settings {
+        final boolean enabled;
+        final String format;
+        final double scale;
+        final float quality;
+        final int maxWidth;
+        final int maxHeight;
+        final int maxBytes;
+
+        Settings(boolean enabled, String format, double scale, float quality, int maxWidth, int maxHeight, int maxBytes) {
+            this.enabled = enabled;
+            this.format = format;
+            this.scale = scale;
+            this.quality = quality;
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            this.maxBytes = maxBytes;
+        }
+
+        static Settings fromEnvironment() {
+            String screenshotEnabled = System.getenv(GaugeConstant.SCREENSHOT_ENABLED);
+            boolean enabled = !(screenshotEnabled == null || screenshotEnabled.toLowerCase().equals("false"));
+            String format = System.getenv(GaugeConstant.SCREENSHOT_FORMAT);
+            if (format == null || format.trim().equals("")) {
+                format = IMAGE_EXTENSION;
+            }
+            return new Settings(enabled, format.trim().toLowerCase(), numberFromEnv(GaugeConstant.SCREENSHOT_SCALE, 1),
+                    (float) numberFromEnv(GaugeConstant.SCREENSHOT_QUALITY, -1),
+                    (int) numberFromEnv(GaugeConstant.SCREENSHOT_MAX_WIDTH, 0), (int) numberFromEnv(GaugeConstant.SCREENSHOT_MAX_HEIGHT, 0),
+                    (int) numberFromEnv(GaugeConstant.SCREENSHOT_MAX_BYTES, 0));
+        }
+
+        private static double numberFromEnv(String name, double defaultValue) {
+            String value = System.getenv(name);
+            if (value == null || value.trim().equals("")) {
+                return defaultValue;
+            }
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                System.out.println(name + " should be a number, found " + value);
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Captures the screenshot attached to a failed step, e.g. from a WebDriver session or a virtual framebuffer.
+ * An implementation is discovered at startup with {@link java.util.ServiceLoader}: list it in
+ * META-INF/services/com.thoughtworks.gauge.ScreenshotProvider. The screen is captured with AWT Robot otherwise.
+ * <p>
+ * The image is scaled, encoded and compressed by gauge-java according to the screenshot settings.
+ */
+public interface ScreenshotProvider {
+    /**
+     * @return the screenshot, or null if there is nothing to capture
+     */
+    BufferedImage takeScreenshot() throws Exception;
+}
@@ -17,72 +17,128 @@
 
 package com.thoughtworks.gauge;
 
+import com.thoughtworks.gauge.execution.ArgumentBinder;
+import com.thoughtworks.gauge.execution.MethodInvokers;
+
 import java.io.File;
 import java.lang.reflect.Method;
 import java.util.*;
 
+/**
+ * The registered step implementations. Readers use an immutable snapshot published through a volatile field, so
+ * lookups never wait; changes build a new snapshot and swap it in.
+ */
 public class StepRegistry {
 
-    private static HashMap<String, StepRegistryEntry> registry = new RegistryMap<String, StepRegistryEntry>();
+    private static final StepRegistryEntry MISSING_ENTRY = new StepRegistryEntry();
+    private static volatile Snapshot snapshot = new Snapshot(new HashMap<String, StepRegistryEntry>());
 
     public static void addStepImplementation(StepValue stepValue, Method method) {
-        registry.put(stepValue.getStepText(), new StepRegistryEntry(stepValue, method));
+        addStepImplementations(Collections.singletonList(stepValue), Collections.singletonList(method), false);
+    }
+
+    /**
+     * Replaces all registered steps at once, e.g. after a rescan. Executions in progress keep using the steps
+     * registered when they started.
+     */
+    public static void setStepImplementations(List<StepValue> stepValues, List<Method> methods) {
+        addStepImplementations(stepValues, methods, true);
+    }
+
+    private static void addStepImplementations(List<StepValue> stepValues, List<Method> methods, boolean replace) {
+        for (Method method : methods) {
+            MethodInvokers.prepare(method);
+            ArgumentBinder.prepare(method);
+        }
+        synchronized (StepRegistry.class) {
+            Map<String, StepRegistryEntry> entries = replace ? new HashMap<String, StepRegistryEntry>() : new HashMap<String, StepRegistryEntry>(snapshot.entries);
+            for (int i = 0; i < stepValues.size(); i++) {
+                entries.put(stepValues.get(i).getStepText(), new StepRegistryEntry(stepValues.get(i), methods.get(i)));
+            }
+            snapshot = new Snapshot(entries);
+        }
     }
 
     public static boolean contains(String stepTemplateText) {
-        return registry.containsKey(stepTemplateText);
+        return snapshot.entries.containsKey(stepTemplateText);
     }
 
     public static Method get(String stepTemplateText) {
-        return registry.get(stepTemplateText).getMethod();
+        return snapshot.entryFor(stepTemplateText).getMethod();
     }
 
     public static String getFileName(String stepTemplateText) {
-        return registry.get(stepTemplateText).getFileName();
+        return snapshot.entryFor(stepTemplateText).getFileName();
     }
 
     public static List<String> getAllStepAnnotationTexts() {
-        List<String> stepTexts = new ArrayList<String>();
-        for (StepRegistryEntry registryEntry : registry.values()) {
-            stepTexts.add(registryEntry.getStepValue().getStepAnnotationText());
-        }
-        return stepTexts;
+        return new ArrayList<String>(snapshot.annotationTexts);
     }
 
     public static List<String> getStepAnnotationFor(Set<String> stepTexts) {
+        Snapshot current = snapshot;
         List<String> stepValues = new ArrayList<String>();
         for (String stepText : stepTexts) {
-            stepValues.add(getStepAnnotationFor(stepText));
+            stepValues.add(current.entryFor(stepText).getStepValue().getStepAnnotationText());
         }
         return stepValues;
     }
 
     public static String getStepAnnotationFor(String stepTemplateText) {
-        for (StepRegistryEntry entry : registry.values()) {
-            if (entry.getStepValue().getStepText().equals(stepTemplateText)){
-                return entry.getStepValue().getStepAnnotationText();
-            }
-        }
-        return "";
+        return snapshot.entryFor(stepTemplateText).getStepValue().getStepAnnotationText();
     }
 
     public static Set<String> getAllAliasAnnotationTextsFor(String stepTemplateText) {
-        Method method = get(stepTemplateText);
-        HashSet<String> aliases = new HashSet<String>();
-        for (Map.Entry<String, StepRegistryEntry> entry : registry.entrySet()) {
-            if (entry.getValue().getMethod().equals(method)) {
-                aliases.add(entry.getValue().getStepValue().getStepAnnotationText());
-            }
-        }
-        return aliases;
+        Snapshot current = snapshot;
+        Set<String> aliases = current.aliases.get(current.entryFor(stepTemplateText).getMethod());
+        return aliases == null ? Collections.<String>emptySet() : aliases;
     }
 
     public static boolean hasAlias(String stepTemplateText) {
-        return getStepAnnotationFor(getAllAliasAnnotationTextsFor(stepTemplateText)).size() > 1;
+        return getAllAliasAnnotationTextsFor(stepTemplateText).size() > 1;
     }
 
-    public static void remove(String stepTemplateText) {
-       registry.remove(stepTemplateText);
+    public static synchronized void remove(String stepTemplateText) {
+        if (snapshot.entries.containsKey(stepTemplateText)) {
+            Map<String, StepRegistryEntry> entries = new HashMap<String, StepRegistryEntry>(snapshot.entries);
+            entries.remove(stepTemplateText);
+            snapshot = new Snapshot(entries);
+        }
+    }
+
+    /**
+     * The registered steps with lookups by step text and by method, never changed once published.
+     */
+    private static class Snapshot {
+        private final Map<String, StepRegistryEntry> entries;
+        private final Map<Method, Set<String>> aliases;
+        private final List<String> annotationTexts;
+
+        Snapshot(Map<String, StepRegistryEntry> entries) {
+            Map<Method, Set<String>> aliases = new HashMap<Method, Set<String>>();
+            List<String> annotationTexts = new ArrayList<String>(entries.size());
+            for (StepRegistryEntry entry : entries.values()) {
+                String annotationText = entry.getStepValue().getStepAnnotationText();
+                annotationTexts.add(annotationText);
+                Set<String> methodAliases = aliases.get(entry.getMethod());
+                if (methodAliases == null) {
+                    methodAliases = new HashSet<String>();
+                    aliases.put(entry.getMethod(), methodAliases);
+                }
+                methodAliases.add(annotationText);
+            }
+            for (Map.Entry<Method, Set<String>> alias : aliases.entrySet()) {
+                alias.setValue(Collections.unmodifiableSet(alias.getValue()));
+            }
+            this.entries = Collections.unmodifiableMap(entries);
+            this.aliases = aliases;
+            this.annotationTexts = Collections.unmodifiableList(annotationTexts);
+        }
+
+        StepRegistryEntry entryFor(String stepTemplateText) {
+            StepRegistryEntry entry = entries.get(stepTemplateText);
+            return entry == null ? MISSING_ENTRY : entry;
+        }
     }
 
     private static class StepRegistryEntry {
@@ -115,14 +171,4 @@ public class StepRegistry {
             return method.getDeclaringClass().getCanonicalName().replace(".", File.separator) + ".java";
         }
     }
-
-    private static class RegistryMap<T, T1> extends HashMap {
-
-        public Object get(Object o) {
-            if (super.get(o) == null) {
-                return new StepRegistryEntry();
-            }
-            return super.get(o);
-        }
-    }
 }
@@ -0,0 +1,84 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a step annotation text like {@code Login as <user> with "secret"} into its {@link StepValue}
+ * ({@code Login as {} with {}}, parameterized as {@code Login as <user> with <secret>}, parameters user and secret)
+ * the same way gauge core does, without a round trip to it.
+ * Texts the parser is not sure about (escapes, braces, unbalanced quotes or brackets) are left to gauge core.
+ */
+public class StepTextParser {
+    private static final String PARAMETER_PLACEHOLDER = "{}";
+
+    /**
+     * @return the step value, or null if gauge core has to resolve this text
+     */
+    public StepValue parse(String stepText) {
+        if (stepText == null) {
+            return null;
+        }
+        String text = stepText.trim();
+        StringBuilder stepValue = new StringBuilder(text.length());
+        StringBuilder parameterizedStepValue = new StringBuilder(text.length());
+        List<String> parameters = new ArrayList<String>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == '{' || c == '}' || c == '>') {
+                return null;
+            }
+            if (c == '"' || c == '<') {
+                char closing = c == '"' ? '"' : '>';
+                int end = text.indexOf(closing, i + 1);
+                if (end == -1) {
+                    return null;
+                }
+                String parameter = text.substring(i + 1, end);
+                if (!isSimpleParameter(parameter, c == '<')) {
+                    return null;
+                }
+                parameters.add(parameter);
+                stepValue.append(PARAMETER_PLACEHOLDER);
+                parameterizedStepValue.append('<').append(parameter).append('>');
+                i = end + 1;
+            } else {
+                stepValue.append(c);
+                parameterizedStepValue.append(c);
+                i++;
+            }
+        }
+        return new StepValue(stepValue.toString(), parameterizedStepValue.toString(), parameters);
+    }
+
+    private boolean isSimpleParameter(String parameter, boolean dynamic) {
+        if (dynamic && parameter.trim().length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < parameter.length(); i++) {
+            char c = parameter.charAt(i);
+            if (c == '\\' || c == '"' || c == '<' || c == '>' || c == '{' || c == '}') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves step values for step annotation texts, parsing them locally where possible.
+ * Only texts the {@link StepTextParser} cannot handle are sent to gauge core, along with a few locally parsed texts
+ * to check the parser against it. Everything is resolved by gauge core on a mismatch.
+ */
+public class StepValueResolver {
+    private static final int VALIDATION_SAMPLE_SIZE = 5;
+
+    private final GaugeConnection gaugeConnection;
+    private final StepTextParser parser = new StepTextParser();
+
+    public StepValueResolver(GaugeConnection gaugeConnection) {
+        this.gaugeConnection = gaugeConnection;
+    }
+
+    public List<StepValue> resolve(List<String> stepTexts) throws IOException {
+        List<StepValue> stepValues = new ArrayList<StepValue>(stepTexts.size());
+        List<Integer> unresolved = new ArrayList<Integer>();
+        List<Integer> sample = new ArrayList<Integer>();
+        for (int i = 0; i < stepTexts.size(); i++) {
+            StepValue stepValue = parser.parse(stepTexts.get(i));
+            stepValues.add(stepValue);
+            if (stepValue == null) {
+                unresolved.add(i);
+            } else if (sample.size() < VALIDATION_SAMPLE_SIZE) {
+                sample.add(i);
+            }
+        }
+        List<Integer> requested = new ArrayList<Integer>(unresolved);
+        requested.addAll(sample);
+        if (requested.isEmpty()) {
+            return stepValues;
+        }
+        List<StepValue> coreValues = gaugeConnection.getStepValues(textsAt(stepTexts, requested));
+        for (int i = unresolved.size(); i < requested.size(); i++) {
+            if (!coreValues.get(i).equals(stepValues.get(requested.get(i)))) {
+                System.out.println("Step text parsing differs from gauge for '" + stepTexts.get(requested.get(i)) + "', resolving all steps through gauge");
+                return gaugeConnection.getStepValues(stepTexts);
+            }
+        }
+        for (int i = 0; i < unresolved.size(); i++) {
+            stepValues.set(unresolved.get(i), coreValues.get(i));
+        }
+        return stepValues;
+    }
+
+    private List<String> textsAt(List<String> stepTexts, List<Integer> indexes) {
+        List<String> texts = new ArrayList<String>(indexes.size());
+        for (Integer index : indexes) {
+            texts.add(stepTexts.get(index));
+        }
+        return texts;
+    }
+}
@@ -17,27 +17,144 @@
 
 package com.thoughtworks.gauge;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
-public class Table {
-    private final List<String> headers;
-    private final List<List<String>> rows;
+/**
+ * A data table passed to a step. Rows can be read as lists of cells, or as {@link TableRow}s that look up cells by
+ * column name.
+ * A table created from gauge's message is a view over that message; cells are only decoded when they are read.
+ * The view is copied into modifiable lists the first time the column names or rows are asked for, or a row is added.
+ */
+public class Table implements Iterable<TableRow> {
+    private List<String> headers;
+    private List<List<String>> rows;
+    private boolean headersOwned;
+    private boolean rowsOwned;
+    private boolean headersExposed;
+    private Map<String, Integer> columnIndexes;
 
     public Table(List<String> headers) {
         this.headers = headers;
         rows = new ArrayList<List<String>>();
+        headersOwned = true;
+        rowsOwned = true;
+    }
+
+    /**
+     * Creates a table over existing headers and rows without copying them.
+     */
+    public Table(List<String> headers, List<List<String>> rows) {
+        this.headers = headers;
+        this.rows = rows;
     }
 
     public void addRow(List<String> row) {
+        ownRows();
         rows.add(row);
     }
 
+    /**
+     * @return the column names, which can be changed
+     */
     public List<String> getColumnNames() {
+        if (!headersOwned) {
+            headers = new ArrayList<String>(headers);
+            headersOwned = true;
+        }
+        // The caller may change the names, so the column indexes can no longer be cached
+        headersExposed = true;
+        columnIndexes = null;
         return headers;
     }
 
+    /**
+     * @return the rows, which can be changed along with their cells
+     */
     public List<List<String>> getRows() {
+        ownRows();
         return rows;
     }
+
+    private void ownRows() {
+        if (!rowsOwned) {
+            List<List<String>> copies = new ArrayList<List<String>>(rows.size());
+            for (List<String> row : rows) {
+                copies.add(new ArrayList<String>(row));
+            }
+            rows = copies;
+            rowsOwned = true;
+        }
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public TableRow getTableRow(int index) {
+        return new TableRow(this, rows.get(index));
+    }
+
+    public Iterator<TableRow> iterator() {
+        final Iterator<List<String>> rowIterator = rows.iterator();
+        return new Iterator<TableRow>() {
+            public boolean hasNext() {
+                return rowIterator.hasNext();
+            }
+
+            public TableRow next() {
+                return new TableRow(Table.this, rowIterator.next());
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return the index of the column, or -1 if the table has no such column
+     */
+    public int getColumnIndex(String columnName) {
+        if (headersExposed) {
+            return headers.indexOf(columnName);
+        }
+        if (columnIndexes == null) {
+            Map<String, Integer> indexes = new HashMap<String, Integer>();
+            for (int i = headers.size() - 1; i >= 0; i--) {
+                indexes.put(headers.get(i), i);
+            }
+            columnIndexes = indexes;
+        }
+        Integer index = columnIndexes.get(columnName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the cells of the column, read from the rows as they are accessed
+     */
+    public List<String> getColumnValues(String columnName) {
+        final int index = columnIndex(columnName);
+        return new AbstractList<String>() {
+            public String get(int row) {
+                return rows.get(row).get(index);
+            }
+
+            public int size() {
+                return rows.size();
+            }
+        };
+    }
+
+    int columnIndex(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Table has no column " + columnName + ", columns are " + headers);
+        }
+        return index;
+    }
 }
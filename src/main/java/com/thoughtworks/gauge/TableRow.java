@@ -0,0 +1,66 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import java.util.List;
+
+/**
+ * One row of a {@link Table}, with cells looked up by column name.
+ */
+public class TableRow {
+    private final Table table;
+    private final List<String> cells;
+
+    TableRow(Table table, List<String> cells) {
+        this.table = table;
+        this.cells = cells;
+    }
+
+    public String getCell(String columnName) {
+        return cells.get(table.columnIndex(columnName));
+    }
+
+    public String getCell(int columnIndex) {
+        return cells.get(columnIndex);
+    }
+
+    public int getInt(String columnName) {
+        return Integer.parseInt(getCell(columnName));
+    }
+
+    public long getLong(String columnName) {
+        return Long.parseLong(getCell(columnName));
+    }
+
+    public double getDouble(String columnName) {
+        return Double.parseDouble(getCell(columnName));
+    }
+
+    public boolean getBoolean(String columnName) {
+        return Boolean.parseBoolean(getCell(columnName));
+    }
+
+    public List<String> getCells() {
+        return cells;
+    }
+
+    @Override
+    public String toString() {
+        return cells.toString();
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import com.thoughtworks.gauge.GaugeConstant;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+/**
+ * Connects to gauge while it is still starting up, retrying with exponential backoff and jitter until a deadline.
+ * Keeps track of how long the last successful connect took and how many attempts it needed.
+ */
+public class ConnectionEstablisher {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30 * 1000;
+    private static final long INITIAL_DELAY_MILLIS = 10;
+    private static final long MAX_DELAY_MILLIS = 1000;
+
+    private final TransportFactory transportFactory;
+    private final long timeoutMillis;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+    private long lastConnectDurationMillis;
+    private int lastConnectAttempts;
+
+    public ConnectionEstablisher(TransportFactory transportFactory, long timeoutMillis) {
+        this(transportFactory, timeoutMillis, INITIAL_DELAY_MILLIS, MAX_DELAY_MILLIS);
+    }
+
+    public ConnectionEstablisher(TransportFactory transportFactory, long timeoutMillis, long initialDelayMillis, long maxDelayMillis) {
+        this.transportFactory = transportFactory;
+        this.timeoutMillis = timeoutMillis;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Uses the deadline from {@link GaugeConstant#GAUGE_CONNECT_TIMEOUT} (milliseconds), defaulting to {@link #DEFAULT_TIMEOUT_MILLIS}.
+     */
+    public static ConnectionEstablisher fromEnvironment(TransportFactory transportFactory) {
+        int timeout = TransportFactory.intFromEnv(GaugeConstant.GAUGE_CONNECT_TIMEOUT);
+        return new ConnectionEstablisher(transportFactory, timeout > 0 ? timeout : DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public Transport connect(String host, int port) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeoutMillis;
+        long delay = initialDelayMillis;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            try {
+                Transport transport = transportFactory.connect(host, port);
+                lastConnectDurationMillis = System.currentTimeMillis() - startTime;
+                lastConnectAttempts = attempts;
+                return transport;
+            } catch (IOException e) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException(String.format("Could not connect to %s:%d after %d attempts in %d ms", host, port, attempts, timeoutMillis), e);
+                }
+                sleep(Math.min(remaining, withJitter(delay)));
+                delay = Math.min(delay * 2, maxDelayMillis);
+            }
+        }
+    }
+
+    public long getLastConnectDurationMillis() {
+        return lastConnectDurationMillis;
+    }
+
+    public int getLastConnectAttempts() {
+        return lastConnectAttempts;
+    }
+
+    // Spreads retries of runners started together so they do not hit gauge in lockstep
+    private long withJitter(long delay) {
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+
+    private void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to connect to gauge");
+        }
+    }
+}
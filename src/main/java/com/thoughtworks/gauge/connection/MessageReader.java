@@ -0,0 +1,87 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads varint length-delimited protobuf messages from a stream.
+ * The message body is read with a single bulk read into a buffer which is reused across messages.
+ * Not thread safe, callers have to synchronize access when a stream is shared.
+ */
+public class MessageReader {
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    // Buffers larger than this (screenshots, huge tables) are not kept around after the message is parsed
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private final InputStream inputStream;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    public MessageReader(InputStream inputStream) {
+        this.inputStream = new BufferedInputStream(inputStream, STREAM_BUFFER_SIZE);
+    }
+
+    public <T extends MessageLite> T readMessage(Parser<T> parser) throws IOException {
+        int length = readMessageLength();
+        byte[] body = bufferFor(length);
+        readFully(body, length);
+        return parser.parseFrom(body, 0, length);
+    }
+
+    private int readMessageLength() throws IOException {
+        int firstByte = inputStream.read();
+        if (firstByte == -1) {
+            throw new EOFException("Connection closed while waiting for a message");
+        }
+        int length = CodedInputStream.readRawVarint32(firstByte, inputStream);
+        if (length < 0) {
+            throw new IOException("Invalid message length " + length);
+        }
+        return length;
+    }
+
+    private byte[] bufferFor(int length) {
+        if (length <= buffer.length) {
+            return buffer;
+        }
+        byte[] newBuffer = new byte[Math.max(length, buffer.length * 2)];
+        if (newBuffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            buffer = newBuffer;
+        }
+        return newBuffer;
+    }
+
+    private void readFully(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = inputStream.read(bytes, offset, length - offset);
+            if (read == -1) {
+                throw new EOFException("Connection closed after " + offset + " of " + length + " message bytes");
+            }
+            offset += read;
+        }
+    }
+}
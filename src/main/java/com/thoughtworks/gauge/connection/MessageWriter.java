@@ -0,0 +1,60 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes varint length-delimited protobuf messages to a stream.
+ * The message is serialized once, straight into a buffer that is reused across messages,
+ * and handed to the stream in a single write when it fits the buffer.
+ * Not thread safe, callers have to synchronize access when a stream is shared.
+ */
+public class MessageWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+    private final CodedOutputStream codedOutputStream;
+
+    public MessageWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+        this.codedOutputStream = CodedOutputStream.newInstance(outputStream, BUFFER_SIZE);
+    }
+
+    public void writeMessage(MessageLite message) throws IOException {
+        write(message);
+        flush();
+    }
+
+    /**
+     * Buffers the message without flushing, so several messages can be sent together with {@link #flush()}.
+     */
+    public void write(MessageLite message) throws IOException {
+        codedOutputStream.writeRawVarint32(message.getSerializedSize());
+        message.writeTo(codedOutputStream);
+    }
+
+    public void flush() throws IOException {
+        codedOutputStream.flush();
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Transport over a blocking NIO {@link SocketChannel}.
+ * Reads and writes go through direct buffers so the channel does not copy through a temporary native buffer.
+ */
+public class SocketChannelTransport implements Transport {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+
+    public SocketChannelTransport(SocketChannel channel) {
+        this.channel = channel;
+        this.inputStream = new ChannelInputStream();
+        this.outputStream = new ChannelOutputStream();
+    }
+
+    public static SocketChannelTransport open(String host, int port, int sendBufferSize, int receiveBufferSize) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            TransportFactory.configure(channel.socket(), sendBufferSize, receiveBufferSize);
+            channel.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new SocketChannelTransport(channel);
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public int getPort() {
+        return channel.socket().getPort();
+    }
+
+    public boolean isConnected() {
+        return channel.isOpen() && channel.isConnected();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private class ChannelInputStream extends InputStream {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ChannelInputStream() {
+            buffer.flip();
+        }
+
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        public int available() {
+            return buffer.remaining();
+        }
+
+        public void close() throws IOException {
+            SocketChannelTransport.this.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            return read > 0;
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        public void flush() throws IOException {
+            drain();
+        }
+
+        public void close() throws IOException {
+            SocketChannelTransport.this.close();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
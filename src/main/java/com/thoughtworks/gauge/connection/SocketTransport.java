@@ -0,0 +1,67 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Transport over a blocking {@link java.net.Socket}.
+ */
+public class SocketTransport implements Transport {
+    private final Socket socket;
+
+    public SocketTransport(Socket socket) {
+        this.socket = socket;
+    }
+
+    public static SocketTransport open(String host, int port, int sendBufferSize, int receiveBufferSize) throws IOException {
+        Socket socket = new Socket();
+        try {
+            TransportFactory.configure(socket, sendBufferSize, receiveBufferSize);
+            socket.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return new SocketTransport(socket);
+    }
+
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        return socket.getOutputStream();
+    }
+
+    public int getPort() {
+        return socket.getPort();
+    }
+
+    public boolean isConnected() {
+        return !socket.isClosed() && socket.isConnected();
+    }
+
+    public void close() throws IOException {
+        socket.close();
+    }
+}
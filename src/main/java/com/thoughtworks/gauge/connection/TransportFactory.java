@@ -0,0 +1,81 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import com.thoughtworks.gauge.GaugeConstant;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Creates the transport selected by the {@link GaugeConstant#GAUGE_TRANSPORT} environment variable.
+ * Possible values are socket (default) and nio.
+ */
+public class TransportFactory {
+    public static final String SOCKET = "socket";
+    public static final String NIO = "nio";
+
+    private final String transportType;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    public TransportFactory() {
+        this(System.getenv(GaugeConstant.GAUGE_TRANSPORT),
+                intFromEnv(GaugeConstant.GAUGE_SOCKET_SEND_BUFFER_SIZE),
+                intFromEnv(GaugeConstant.GAUGE_SOCKET_RECEIVE_BUFFER_SIZE));
+    }
+
+    public TransportFactory(String transportType, int sendBufferSize, int receiveBufferSize) {
+        this.transportType = transportType == null || transportType.trim().equals("") ? SOCKET : transportType.trim().toLowerCase();
+        if (!this.transportType.equals(SOCKET) && !this.transportType.equals(NIO)) {
+            throw new IllegalArgumentException("Unknown transport " + transportType + ". Possible values are " + SOCKET + " and " + NIO);
+        }
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public Transport connect(String host, int port) throws IOException {
+        if (transportType.equals(NIO)) {
+            return SocketChannelTransport.open(host, port, sendBufferSize, receiveBufferSize);
+        }
+        return SocketTransport.open(host, port, sendBufferSize, receiveBufferSize);
+    }
+
+    static void configure(Socket socket, int sendBufferSize, int receiveBufferSize) throws IOException {
+        // Every message is flushed as one frame and answered before the next one is sent, so Nagle only adds latency
+        socket.setTcpNoDelay(true);
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+    }
+
+    static int intFromEnv(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.trim().equals("")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " should be a number of bytes, found " + value);
+        }
+    }
+}
@@ -16,38 +16,12 @@
 // along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
 package com.thoughtworks.gauge.execution;
 
-import gauge.messages.Spec;
-
 public abstract class AbstractExecutionStage implements ExecutionStage {
 
-    public Spec.ProtoExecutionResult executeNext(Spec.ProtoExecutionResult previousStageResult) {
+    protected void executeNext(ExecutionContext context) {
         if (next() != null) {
-            return next().execute(previousStageResult);
-        } else {
-            return previousStageResult;
-        }
-    }
-
-    protected Spec.ProtoExecutionResult mergeExecResults(Spec.ProtoExecutionResult previousStageResult, Spec.ProtoExecutionResult execResult) {
-        long execTime = execResult.getExecutionTime() + previousStageResult.getExecutionTime();
-        boolean failed = execResult.getFailed() | previousStageResult.getFailed();
-        boolean recoverableError = execResult.getRecoverableError() & previousStageResult.getRecoverableError();
-
-        Spec.ProtoExecutionResult.Builder builder = Spec.ProtoExecutionResult.newBuilder();
-        builder.setExecutionTime(execTime);
-        builder.setFailed(failed);
-        builder.setRecoverableError(recoverableError);
-
-        if (previousStageResult.getFailed()) {
-            builder.setErrorMessage(previousStageResult.getErrorMessage());
-            builder.setScreenShot(previousStageResult.getScreenShot());
-            builder.setStackTrace(previousStageResult.getStackTrace());
-        } else if(execResult.getFailed()) {
-            builder.setErrorMessage(execResult.getErrorMessage());
-            builder.setScreenShot(execResult.getScreenShot());
-            builder.setStackTrace(execResult.getStackTrace());
+            next().execute(context);
         }
-        return builder.build();
     }
 
     protected abstract ExecutionStage next();
@@ -0,0 +1,117 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.thoughtworks.gauge.ParameterConverter;
+import com.thoughtworks.gauge.Table;
+import gauge.messages.Spec;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts the parameters of an ExecuteStep request to the arguments of a step method.
+ * The converter for each parameter is looked up once per method, when the step is registered.
+ * See {@link ParameterConverters} for the supported types.
+ */
+public class ArgumentBinder {
+    private static final StringToPrimitiveConverter defaultConverter = new StringConverter();
+    private static final StringToPrimitiveConverter tableConverter = new TableConverter();
+    private static final ConcurrentMap<Method, ArgumentBinder> binders = new ConcurrentHashMap<Method, ArgumentBinder>();
+
+    private final StringToPrimitiveConverter[] parameterConverters;
+
+    private ArgumentBinder(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Type[] genericParameterTypes = method.getGenericParameterTypes();
+        parameterConverters = new StringToPrimitiveConverter[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterConverters[i] = converterFor(parameterTypes[i], genericParameterTypes[i]);
+        }
+    }
+
+    private static StringToPrimitiveConverter converterFor(Class<?> type, Type genericType) {
+        if (type == Table.class) {
+            return tableConverter;
+        }
+        ParameterConverter converter = ParameterConverters.find(type);
+        if (converter != null) {
+            return new ParameterValueConverter(converter, type, ParameterConverters.isImmutable(type));
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            Class<?> elementType = elementType(genericType);
+            return new ListConverter(ParameterConverters.find(elementType), elementType);
+        }
+        return defaultConverter;
+    }
+
+    private static Class<?> elementType(Type listType) {
+        if (listType instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) listType).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                return (Class<?>) elementType;
+            }
+        }
+        return String.class;
+    }
+
+    public static ArgumentBinder forMethod(Method method) {
+        ArgumentBinder binder = binders.get(method);
+        if (binder == null) {
+            binder = new ArgumentBinder(method);
+            ArgumentBinder existing = binders.putIfAbsent(method, binder);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return binder;
+    }
+
+    public static void prepare(Method method) {
+        forMethod(method);
+    }
+
+    /**
+     * Drops the binders of methods declared in the given classes, e.g. after they were reloaded.
+     */
+    public static void evict(Set<String> classNames) {
+        for (Method method : binders.keySet()) {
+            if (classNames.contains(method.getDeclaringClass().getName())) {
+                binders.remove(method);
+            }
+        }
+    }
+
+    /**
+     * @return one argument per parameter; parameters beyond the method's arity are passed on as null
+     */
+    public Object[] bind(List<Spec.Parameter> parameters) {
+        Object[] arguments = new Object[parameters.size()];
+        int count = Math.min(arguments.length, parameterConverters.length);
+        for (int i = 0; i < count; i++) {
+            arguments[i] = parameterConverters[i].convert(parameters.get(i));
+        }
+        return arguments;
+    }
+}
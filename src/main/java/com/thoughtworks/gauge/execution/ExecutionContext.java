@@ -0,0 +1,112 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.google.protobuf.ByteString;
+import gauge.messages.Messages;
+import gauge.messages.Spec;
+
+import java.util.concurrent.Future;
+
+/**
+ * The state of one run through an {@link ExecutionPipeline}: the step being executed and the combined result of the
+ * stages so far. Lets a pipeline be built once and reused; the result message is only built at the end.
+ */
+public class ExecutionContext {
+    private final Messages.ExecuteStepRequest executeStepRequest;
+    private final ExecutionTimings timings = new ExecutionTimings();
+    private long untimedExecutionTime;
+    private boolean failed;
+    private boolean recoverableError;
+    private Spec.ProtoExecutionResult failure;
+    private Future<byte[]> pendingScreenshot;
+
+    public ExecutionContext(Messages.ExecuteStepRequest executeStepRequest) {
+        this.executeStepRequest = executeStepRequest;
+    }
+
+    public Messages.ExecuteStepRequest getExecuteStepRequest() {
+        return executeStepRequest;
+    }
+
+    /**
+     * Per stage breakdown of the time spent so far.
+     */
+    public ExecutionTimings getTimings() {
+        return timings;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Adds the result of a stage, keeping the error details of the first failure.
+     */
+    public void add(Spec.ProtoExecutionResult stageResult) {
+        untimedExecutionTime += stageResult.getExecutionTime();
+        addTimed(stageResult);
+    }
+
+    /**
+     * Adds the result of a stage whose time has already been recorded in {@link #getTimings()}.
+     */
+    void addTimed(Spec.ProtoExecutionResult stageResult) {
+        recoverableError &= stageResult.getRecoverableError();
+        if (!failed && stageResult.getFailed()) {
+            failure = stageResult;
+        }
+        failed |= stageResult.getFailed();
+    }
+
+    /**
+     * Sets the screenshot of the failure added next, which may still be being captured or encoded.
+     */
+    void setPendingScreenshot(Future<byte[]> screenshot) {
+        this.pendingScreenshot = screenshot;
+    }
+
+    public Spec.ProtoExecutionResult toResult() {
+        if (failure != null && pendingScreenshot != null) {
+            failure = failure.toBuilder().setScreenShot(awaitScreenshot()).build();
+            pendingScreenshot = null;
+        }
+        Spec.ProtoExecutionResult.Builder builder = Spec.ProtoExecutionResult.newBuilder();
+        builder.setExecutionTime(untimedExecutionTime + timings.getTotalMillis());
+        builder.setFailed(failed);
+        builder.setRecoverableError(recoverableError);
+        if (failure != null) {
+            builder.setErrorMessage(failure.getErrorMessage());
+            builder.setScreenShot(failure.getScreenShot());
+            builder.setStackTrace(failure.getStackTrace());
+        }
+        return builder.build();
+    }
+
+    private ByteString awaitScreenshot() {
+        long startTime = System.nanoTime();
+        try {
+            return ByteString.copyFrom(pendingScreenshot.get());
+        } catch (Exception e) {
+            System.out.println("Failed to take screenshot: " + e.getMessage());
+            return ByteString.EMPTY;
+        } finally {
+            timings.add(ExecutionTimings.Stage.SCREENSHOT, System.nanoTime() - startTime);
+        }
+    }
+}
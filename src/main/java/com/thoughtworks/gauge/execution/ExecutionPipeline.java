@@ -27,9 +27,12 @@ public class ExecutionPipeline {
         this.lastStage = this.firstStage;
     }
 
-    public Spec.ProtoExecutionResult start() {
-        Spec.ProtoExecutionResult result = Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(0).build();
-        return firstStage.execute(result);
+    /**
+     * Runs the pipeline for one execution. The pipeline can be reused for further executions with new contexts.
+     */
+    public Spec.ProtoExecutionResult start(ExecutionContext context) {
+        firstStage.execute(context);
+        return context.toResult();
     }
 
     public void addStages(ExecutionStage... stages) {
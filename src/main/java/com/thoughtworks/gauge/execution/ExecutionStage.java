@@ -16,13 +16,12 @@
 // along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
 package com.thoughtworks.gauge.execution;
 
-import gauge.messages.Spec;
-
 public interface ExecutionStage {
 
     void setNextStage(ExecutionStage stage);
 
-    Spec.ProtoExecutionResult execute(Spec.ProtoExecutionResult result);
-
-    Spec.ProtoExecutionResult executeNext(Spec.ProtoExecutionResult stageResult);
+    /**
+     * Runs this stage and the ones after it, adding their results to the context.
+     */
+    void execute(ExecutionContext context);
 }
@@ -0,0 +1,66 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in each stage of a step execution, measured with {@link System#nanoTime()}.
+ */
+public class ExecutionTimings {
+    public enum Stage {
+        BEFORE_CLASS_HOOKS, ARGUMENT_CONVERSION, STEP, AFTER_CLASS_HOOKS, SCREENSHOT, HOOKS
+    }
+
+    private final long[] nanos = new long[Stage.values().length];
+
+    public void add(Stage stage, long nanos) {
+        this.nanos[stage.ordinal()] += nanos;
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long stageNanos : nanos) {
+            total += stageNanos;
+        }
+        return total;
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getTotalNanos());
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("total=").append(format(getTotalNanos()));
+        for (Stage stage : Stage.values()) {
+            if (nanos[stage.ordinal()] > 0) {
+                builder.append(' ').append(stage.name().toLowerCase()).append('=').append(format(nanos[stage.ordinal()]));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.3fms", nanos / 1000000.0);
+    }
+}
@@ -16,36 +16,47 @@
 // along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
 package com.thoughtworks.gauge.execution;
 
-import gauge.messages.Spec;
-
 import java.lang.reflect.Method;
 import java.util.Set;
 
 
 public class HookExecutionStage extends AbstractExecutionStage {
     private Set<Method> execHooks;
+    private Class<?> instanceClass;
+    private ExecutionTimings.Stage timingStage = ExecutionTimings.Stage.HOOKS;
+    private final MethodExecutor methodExecutor = new MethodExecutor();
     private ExecutionStage next;
 
     public HookExecutionStage(Set<Method> execHooks) {
         this.execHooks = execHooks;
     }
 
+    /**
+     * Runs the hooks on the instance of instanceClass, used for class scoped hooks inherited from a superclass.
+     */
+    public HookExecutionStage(Set<Method> execHooks, Class<?> instanceClass) {
+        this.execHooks = execHooks;
+        this.instanceClass = instanceClass;
+    }
+
+    /**
+     * @param timingStage the stage the time taken by the hooks is recorded against
+     */
+    public HookExecutionStage(Set<Method> execHooks, Class<?> instanceClass, ExecutionTimings.Stage timingStage) {
+        this(execHooks, instanceClass);
+        this.timingStage = timingStage;
+    }
+
     public void setNextStage(ExecutionStage stage) {
         this.next = stage;
     }
 
-    public Spec.ProtoExecutionResult execute(Spec.ProtoExecutionResult result) {
-        Spec.ProtoExecutionResult execResult = execute();
-        Spec.ProtoExecutionResult stageResult = mergeExecResults(result, execResult);
-        return executeNext(stageResult);
+    public void execute(ExecutionContext context) {
+        context.addTimed(methodExecutor.executeMethods(context, timingStage, instanceClass, execHooks, new Object[0]));
+        executeNext(context);
     }
 
     protected ExecutionStage next() {
         return next;
     }
-
-    private Spec.ProtoExecutionResult execute() {
-        MethodExecutor methodExecutor = new MethodExecutor();
-        return methodExecutor.executeMethods(execHooks);
-    }
 }
@@ -17,64 +17,99 @@
 
 package com.thoughtworks.gauge.execution;
 
-import com.google.protobuf.ByteString;
 import com.thoughtworks.gauge.ClassInstanceManager;
 import com.thoughtworks.gauge.ScreenshotFactory;
 import gauge.messages.Spec;
 
 import java.lang.reflect.Method;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class MethodExecutor {
+    private final ScreenshotFactory screenshotFactory = new ScreenshotFactory();
+
     public Spec.ProtoExecutionResult execute(Method method, Object... args) {
-        long startTime = System.currentTimeMillis();
+        return execute(method.getDeclaringClass(), method, args);
+    }
+
+    /**
+     * Executes the method on the instance of instanceClass, which may be a subclass of the method's declaring class.
+     */
+    public Spec.ProtoExecutionResult execute(Class<?> instanceClass, Method method, Object... args) {
+        ExecutionContext context = new ExecutionContext(null);
+        context.addTimed(execute(context, ExecutionTimings.Stage.STEP, instanceClass, method, args));
+        return context.toResult();
+    }
+
+    /**
+     * Executes the method, adding the time it takes to the given stage of the context's timings. The screenshot of
+     * the first failure is captured right away and handed to the context, which waits for its encoding only when
+     * the result is built.
+     */
+    Spec.ProtoExecutionResult execute(ExecutionContext context, ExecutionTimings.Stage stage, Class<?> instanceClass, Method method, Object[] args) {
+        long startTime = System.nanoTime();
         try {
-            Object instance = ClassInstanceManager.get(method.getDeclaringClass());
-            method.invoke(instance, args);
-            long endTime = System.currentTimeMillis();
-            return Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(endTime - startTime).build();
+            Object instance = ClassInstanceManager.get(instanceClass);
+            MethodInvokers.get(method).invoke(instance, args);
+            long execTime = System.nanoTime() - startTime;
+            context.getTimings().add(stage, execTime);
+            return Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(TimeUnit.NANOSECONDS.toMillis(execTime)).build();
         } catch (Throwable e) {
-            long endTime = System.currentTimeMillis();
-            return createFailureExecResult(endTime - startTime, e);
+            return failure(context, stage, startTime, e);
+        }
+    }
+
+    /**
+     * Reports a failure that happened in the given stage since startTime, e.g. while converting a step's arguments.
+     */
+    Spec.ProtoExecutionResult failure(ExecutionContext context, ExecutionTimings.Stage stage, long startTime, Throwable e) {
+        long execTime = System.nanoTime() - startTime;
+        context.getTimings().add(stage, execTime);
+        boolean firstFailure = !context.isFailed();
+        if (firstFailure) {
+            // Captured right away, before the hooks after the step change what is on screen
+            long captureStart = System.nanoTime();
+            context.setPendingScreenshot(screenshotFactory.takeScreenshot());
+            context.getTimings().add(ExecutionTimings.Stage.SCREENSHOT, System.nanoTime() - captureStart);
         }
+        return createFailureExecResult(execTime, StackTraceFormatter.unwrap(e), firstFailure);
     }
 
-    private Spec.ProtoExecutionResult createFailureExecResult(long execTime, Throwable e) {
+    /**
+     * Only the first failure of a step is reported, so the stack trace is not formatted for later ones.
+     */
+    private Spec.ProtoExecutionResult createFailureExecResult(long execTime, Throwable e, boolean reported) {
         Spec.ProtoExecutionResult.Builder builder = Spec.ProtoExecutionResult.newBuilder().setFailed(true);
-        builder.setScreenShot(ByteString.copyFrom(new ScreenshotFactory().getScreenshotBytes()));
-        if (e.getCause() != null) {
-            builder.setErrorMessage(e.getCause().toString());
-            builder.setStackTrace(formatStackTrace(e.getCause().getStackTrace()));
-        } else {
-            builder.setErrorMessage(e.toString());
-            builder.setStackTrace(formatStackTrace(e.getStackTrace()));
+        builder.setErrorMessage(e.toString());
+        if (reported) {
+            builder.setStackTrace(StackTraceFormatter.format(e));
         }
         builder.setRecoverableError(false);
-        builder.setExecutionTime(execTime);
+        builder.setExecutionTime(TimeUnit.NANOSECONDS.toMillis(execTime));
         return builder.build();
     }
 
-    private String formatStackTrace(StackTraceElement[] stackTrace) {
-        if (stackTrace == null)
-            return "";
+    public Spec.ProtoExecutionResult executeMethods(Set<Method> methods, Object... args) {
+        return executeMethods(null, methods, args);
+    }
 
-        StringBuffer output = new StringBuffer();
-        for (StackTraceElement element : stackTrace) {
-            output.append(element.toString());
-            output.append("\n");
-        }
-        return output.toString();
+    /**
+     * @param instanceClass the class whose instance runs the methods, or null for the declaring class of each method
+     */
+    public Spec.ProtoExecutionResult executeMethods(Class<?> instanceClass, Set<Method> methods, Object... args) {
+        ExecutionContext context = new ExecutionContext(null);
+        context.addTimed(executeMethods(context, ExecutionTimings.Stage.HOOKS, instanceClass, methods, args));
+        return context.toResult();
     }
 
-    public Spec.ProtoExecutionResult executeMethods(Set<Method> methods, Object... args) {
-        long totalExecutionTime = 0;
+    Spec.ProtoExecutionResult executeMethods(ExecutionContext context, ExecutionTimings.Stage stage, Class<?> instanceClass, Set<Method> methods, Object[] args) {
+        long timeBefore = context.getTimings().getTotalNanos();
         for (Method method : methods) {
-            Spec.ProtoExecutionResult result = execute(method, args);
-            totalExecutionTime += result.getExecutionTime();
-            if(result.getFailed()){
-                return result;
+            Spec.ProtoExecutionResult result = execute(context, stage, instanceClass == null ? method.getDeclaringClass() : instanceClass, method, args);
+            if (result.getFailed()) {
+                return result.toBuilder().setExecutionTime(TimeUnit.NANOSECONDS.toMillis(context.getTimings().getTotalNanos() - timeBefore)).build();
             }
         }
-        return Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(totalExecutionTime).build();
+        return Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(TimeUnit.NANOSECONDS.toMillis(context.getTimings().getTotalNanos() - timeBefore)).build();
     }
 }
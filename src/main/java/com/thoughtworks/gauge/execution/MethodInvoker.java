@@ -15,16 +15,12 @@
 // You should have received a copy of the GNU General Public License
 // along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
 
-package com.thoughtworks.gauge;
-
-import com.google.protobuf.CodedInputStream;
-
-class MessageLength {
-        public long length;
-        public CodedInputStream remainingStream;
-
-        public MessageLength(long length, CodedInputStream remainingStream) {
-            this.length = length;
-            this.remainingStream = remainingStream;
-        }
-    }
\ No newline at end of file
+package com.thoughtworks.gauge.execution;
+
+/**
+ * Calls one step or hook method.
+ * Like {@link java.lang.reflect.Method#invoke}, anything thrown by the method is wrapped in an InvocationTargetException.
+ */
+public interface MethodInvoker {
+    void invoke(Object instance, Object... args) throws Exception;
+}
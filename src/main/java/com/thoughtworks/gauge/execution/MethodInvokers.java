@@ -0,0 +1,285 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles and caches one {@link MethodInvoker} per step or hook method.
+ * Public methods of public classes taking public types get a generated class that calls the method directly with
+ * unboxed arguments, everything else (or any method that can not be compiled) is called through reflection. Arguments that are not exactly
+ * of the parameter types, e.g. an Integer for a long parameter, also go through reflection, which widens or rejects them.
+ */
+public class MethodInvokers {
+    private static final String INVOKER_SUFFIX = "$GaugeInvoker";
+    private static final AtomicInteger invokerCount = new AtomicInteger();
+    private static final AtomicBoolean compileFailureReported = new AtomicBoolean();
+    private static final ConcurrentMap<Method, MethodInvoker> invokers = new ConcurrentHashMap<Method, MethodInvoker>();
+    private static final Map<ClassLoader, ClassPool> classPools = Collections.synchronizedMap(new WeakHashMap<ClassLoader, ClassPool>());
+
+    public static MethodInvoker get(Method method) {
+        MethodInvoker invoker = invokers.get(method);
+        if (invoker == null) {
+            invoker = create(method);
+            MethodInvoker existing = invokers.putIfAbsent(method, invoker);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return invoker;
+    }
+
+    /**
+     * Compiles the invoker ahead of the first execution, called when steps and hooks are registered.
+     */
+    public static void prepare(Method method) {
+        get(method);
+    }
+
+    /**
+     * Drops the invokers of methods declared in the given classes, e.g. after they were reloaded.
+     */
+    public static void evict(Set<String> classNames) {
+        for (Method method : invokers.keySet()) {
+            if (classNames.contains(method.getDeclaringClass().getName())) {
+                invokers.remove(method);
+            }
+        }
+    }
+
+    private static MethodInvoker create(Method method) {
+        if (!isCallableFromOtherPackages(method) || method.getDeclaringClass().getClassLoader() == null) {
+            return new ReflectiveMethodInvoker(method);
+        }
+        try {
+            return new TypeCheckingMethodInvoker(method, compile(method));
+        } catch (Throwable e) {
+            // Reflection still works, but every step then pays for it, so say why once
+            if (compileFailureReported.compareAndSet(false, true)) {
+                System.out.println("Could not compile a direct invoker for " + method + ", calling steps through reflection instead: " + e);
+            }
+            return new ReflectiveMethodInvoker(method);
+        }
+    }
+
+    // The invoker is defined in a class loader of its own, so it can only reach public classes and methods
+    private static boolean isCallableFromOtherPackages(Method method) {
+        if (!Modifier.isPublic(method.getModifiers()) || !isPublic(method.getDeclaringClass())) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isPublic(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    private static MethodInvoker compile(Method method) throws Exception {
+        Class<?> declaringClass = method.getDeclaringClass();
+        ClassLoader classLoader = declaringClass.getClassLoader();
+        ClassPool pool = classPoolFor(classLoader);
+        String name;
+        byte[] bytecode;
+        synchronized (pool) {
+            CtClass invoker = pool.makeClass(declaringClass.getName() + INVOKER_SUFFIX + invokerCount.incrementAndGet());
+            try {
+                invoker.addInterface(pool.get(MethodInvoker.class.getName()));
+                invoker.addConstructor(CtNewConstructor.defaultConstructor(invoker));
+                invoker.addMethod(CtNewMethod.make(invokeSource(method), invoker));
+                name = invoker.getName();
+                bytecode = invoker.toBytecode();
+            } finally {
+                invoker.detach();
+            }
+        }
+        Class<?> invokerClass = new InvokerClassLoader(classLoader).define(name, bytecode, declaringClass.getProtectionDomain());
+        return (MethodInvoker) invokerClass.getDeclaredConstructor().newInstance();
+    }
+
+    // One pool per class loader, so the classes a pool has read are shared by all methods compiled for that loader
+    private static ClassPool classPoolFor(ClassLoader classLoader) {
+        synchronized (classPools) {
+            ClassPool pool = classPools.get(classLoader);
+            if (pool == null) {
+                pool = new ClassPool(true);
+                pool.appendClassPath(new LoaderClassPath(classLoader));
+                pool.appendClassPath(new ClassClassPath(MethodInvoker.class));
+                classPools.put(classLoader, pool);
+            }
+            return pool;
+        }
+    }
+
+    static String invokeSource(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        StringBuilder source = new StringBuilder();
+        source.append("public void invoke(Object instance, Object[] args) throws Exception {\n");
+        source.append("    if (args.length != ").append(parameterTypes.length)
+                .append(") throw new IllegalArgumentException(\"wrong number of arguments\");\n");
+        source.append("    try {\n        ");
+        if (Modifier.isStatic(method.getModifiers())) {
+            source.append(typeName(method.getDeclaringClass()));
+        } else {
+            source.append("((").append(typeName(method.getDeclaringClass())).append(") instance)");
+        }
+        source.append('.').append(method.getName()).append('(');
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                source.append(", ");
+            }
+            source.append(argument(parameterTypes[i], i));
+        }
+        source.append(");\n");
+        source.append("    } catch (Throwable e) {\n");
+        source.append("        throw new java.lang.reflect.InvocationTargetException(e);\n");
+        source.append("    }\n");
+        source.append("}");
+        return source.toString();
+    }
+
+    private static String argument(Class<?> type, int index) {
+        String value = "args[" + index + "]";
+        if (!type.isPrimitive()) {
+            return "((" + typeName(type) + ") " + value + ")";
+        }
+        return "((" + boxed(type).getName() + ") " + value + ")." + type.getName() + "Value()";
+    }
+
+    static Class<?> boxed(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == char.class) {
+            return Character.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        return type;
+    }
+
+    /**
+     * Calls the compiled invoker when the instance and arguments are exactly of the declared types, and reflection
+     * otherwise, so that widening and argument errors behave the same as with {@link Method#invoke}.
+     */
+    private static class TypeCheckingMethodInvoker implements MethodInvoker {
+        private final MethodInvoker compiled;
+        private final MethodInvoker reflective;
+        private final Class<?> instanceType;
+        private final Class<?>[] argumentTypes;
+        private final boolean[] primitive;
+
+        TypeCheckingMethodInvoker(Method method, MethodInvoker compiled) {
+            this.compiled = compiled;
+            this.reflective = new ReflectiveMethodInvoker(method);
+            this.instanceType = Modifier.isStatic(method.getModifiers()) ? null : method.getDeclaringClass();
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.argumentTypes = new Class<?>[parameterTypes.length];
+            this.primitive = new boolean[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                argumentTypes[i] = boxed(parameterTypes[i]);
+                primitive[i] = parameterTypes[i].isPrimitive();
+            }
+        }
+
+        public void invoke(Object instance, Object... args) throws Exception {
+            if (matches(instance, args)) {
+                compiled.invoke(instance, args);
+            } else {
+                reflective.invoke(instance, args);
+            }
+        }
+
+        private boolean matches(Object instance, Object[] args) {
+            if (instanceType != null && !instanceType.isInstance(instance)) {
+                return false;
+            }
+            if (args.length != argumentTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null ? primitive[i] : !argumentTypes[i].isInstance(args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Defines one invoker as a child of the step class's loader. Unlike javassist's {@code CtClass.toClass}, this does
+     * not need reflective access to {@link ClassLoader}, which newer JDKs deny, and the invoker can be unloaded along
+     * with its cache entry when the step class is reloaded.
+     */
+    private static class InvokerClassLoader extends ClassLoader {
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode, ProtectionDomain protectionDomain) {
+            return defineClass(name, bytecode, 0, bytecode.length, protectionDomain);
+        }
+    }
+
+    private static String typeName(Class<?> type) {
+        if (type.isArray()) {
+            return typeName(type.getComponentType()) + "[]";
+        }
+        return type.getName();
+    }
+}
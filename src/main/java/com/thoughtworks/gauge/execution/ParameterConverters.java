@@ -0,0 +1,80 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.thoughtworks.gauge.ParameterConverter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The parameter converters found with ServiceLoader, followed by the built-in ones.
+ */
+public class ParameterConverters {
+    private static final String JAVA_TIME_PACKAGE = "java.time.";
+    private static final List<ParameterConverter> converters = Collections.unmodifiableList(load());
+
+    private static List<ParameterConverter> load() {
+        List<ParameterConverter> converters = new ArrayList<ParameterConverter>();
+        Iterator<ParameterConverter> providers = ServiceLoader.load(ParameterConverter.class).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+                converters.add(providers.next());
+            } catch (ServiceConfigurationError e) {
+                System.out.println("Could not load parameter converter: " + e.getMessage());
+            }
+        }
+        converters.add(new PrimitiveConverter());
+        converters.add(new EnumConverter());
+        converters.add(new ArrayConverter());
+        converters.add(new StaticFactoryConverter());
+        return converters;
+    }
+
+    /**
+     * @return the first converter that can convert to the type, or null if values are passed on as strings
+     */
+    public static ParameterConverter find(Class<?> type) {
+        if (type == String.class || type == Object.class) {
+            return null;
+        }
+        for (ParameterConverter converter : converters) {
+            if (converter.canConvert(type)) {
+                return converter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converted values of immutable types can be reused when the same literal is passed again.
+     */
+    static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || PrimitiveConverter.isWrapper(type)
+                || type == BigDecimal.class || type == BigInteger.class || type.getName().startsWith(JAVA_TIME_PACKAGE);
+    }
+}
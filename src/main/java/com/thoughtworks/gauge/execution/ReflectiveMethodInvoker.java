@@ -0,0 +1,32 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import java.lang.reflect.Method;
+
+class ReflectiveMethodInvoker implements MethodInvoker {
+    private final Method method;
+
+    ReflectiveMethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    public void invoke(Object instance, Object... args) throws Exception {
+        method.invoke(instance, args);
+    }
+}
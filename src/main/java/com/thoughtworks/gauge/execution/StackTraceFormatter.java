@@ -0,0 +1,127 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formats the stack trace of a failure for the execution result. Frames of the runner and of reflection are left
+ * out, causes are listed like {@link Throwable#printStackTrace()} does and the trace is limited to a number of frames.
+ */
+class StackTraceFormatter {
+    private static final int MAX_FRAMES = 100;
+    private static final String[] HIDDEN_FRAME_PREFIXES = {
+            "com.thoughtworks.gauge.execution.", "com.thoughtworks.gauge.processor.", "com.thoughtworks.gauge.connection.",
+            "com.thoughtworks.gauge.GaugeRuntime", "java.lang.reflect.", "sun.reflect.", "jdk.internal.reflect."};
+    private static final String GENERATED_INVOKER = "$GaugeInvoker";
+
+    /**
+     * @return the exception thrown by the step or hook, without the exceptions reflection wraps it in
+     */
+    static Throwable unwrap(Throwable throwable) {
+        while (true) {
+            Throwable cause = null;
+            if (throwable instanceof InvocationTargetException) {
+                cause = ((InvocationTargetException) throwable).getTargetException();
+            } else if (throwable instanceof UndeclaredThrowableException) {
+                cause = ((UndeclaredThrowableException) throwable).getUndeclaredThrowable();
+            }
+            if (cause == null) {
+                return throwable;
+            }
+            throwable = cause;
+        }
+    }
+
+    static String format(Throwable throwable) {
+        List<Throwable> chain = causeChain(throwable);
+        StringBuilder output = new StringBuilder();
+        int frameBudget = MAX_FRAMES;
+        StackTraceElement[] enclosing = new StackTraceElement[0];
+        for (int i = 0; i < chain.size() && frameBudget > 0; i++) {
+            StackTraceElement[] frames = visibleFrames(chain.get(i).getStackTrace());
+            if (i > 0) {
+                output.append("Caused by: ").append(chain.get(i)).append('\n');
+            }
+            int inCommon = i > 0 ? framesInCommon(frames, enclosing) : 0;
+            int shown = Math.min(frames.length - inCommon, frameBudget);
+            for (int j = 0; j < shown; j++) {
+                output.append(frames[j].toString()).append('\n');
+            }
+            frameBudget -= shown;
+            if (shown < frames.length - inCommon) {
+                output.append("... ").append(frames.length - inCommon - shown).append(" more frames omitted\n");
+            }
+            if (inCommon > 0) {
+                output.append("... ").append(inCommon).append(" more\n");
+            }
+            enclosing = frames;
+        }
+        return output.toString();
+    }
+
+    private static List<Throwable> causeChain(Throwable throwable) {
+        List<Throwable> chain = new ArrayList<Throwable>();
+        Map<Throwable, Boolean> seen = new IdentityHashMap<Throwable, Boolean>();
+        for (Throwable t = throwable; t != null && !seen.containsKey(t); t = t.getCause()) {
+            seen.put(t, Boolean.TRUE);
+            chain.add(t);
+        }
+        return chain;
+    }
+
+    private static StackTraceElement[] visibleFrames(StackTraceElement[] frames) {
+        if (frames == null) {
+            return new StackTraceElement[0];
+        }
+        List<StackTraceElement> visible = new ArrayList<StackTraceElement>(frames.length);
+        for (StackTraceElement frame : frames) {
+            if (!isHidden(frame.getClassName())) {
+                visible.add(frame);
+            }
+        }
+        return visible.toArray(new StackTraceElement[visible.size()]);
+    }
+
+    private static boolean isHidden(String className) {
+        if (className.contains(GENERATED_INVOKER)) {
+            return true;
+        }
+        for (String prefix : HIDDEN_FRAME_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int framesInCommon(StackTraceElement[] frames, StackTraceElement[] enclosing) {
+        int m = frames.length - 1;
+        int n = enclosing.length - 1;
+        while (m >= 0 && n >= 0 && frames[m].equals(enclosing[n])) {
+            m--;
+            n--;
+        }
+        return frames.length - 1 - m;
+    }
+}
@@ -16,76 +16,56 @@
 // along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
 package com.thoughtworks.gauge.execution;
 
-import com.thoughtworks.gauge.StepRegistry;
-import com.thoughtworks.gauge.Table;
-import gauge.messages.Messages;
 import gauge.messages.Spec;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 
+/**
+ * Executes the step method; it is reused for every execution of the method, the request is read from the
+ * {@link ExecutionContext}.
+ */
 public class StepExecutionStage extends AbstractExecutionStage {
     private ExecutionStage next;
-    private Messages.ExecuteStepRequest executeStepRequest;
-    private Map<Class<?>, StringToPrimitiveConverter> primitiveConverters = new HashMap<Class<?>, StringToPrimitiveConverter>();
+    private final Method method;
+    private final MethodExecutor methodExecutor;
 
-    public StepExecutionStage(Messages.ExecuteStepRequest executeStepRequest) {
-        primitiveConverters.put(int.class, new StringToIntegerConverter());
-        primitiveConverters.put(Integer.class, new StringToIntegerConverter());
-        primitiveConverters.put(boolean.class, new StringToBooleanConverter());
-        primitiveConverters.put(Boolean.class, new StringToBooleanConverter());
-        primitiveConverters.put(long.class, new StringToLongConverter());
-        primitiveConverters.put(Long.class, new StringToLongConverter());
-        primitiveConverters.put(float.class, new StringToFloatConverter());
-        primitiveConverters.put(Float.class, new StringToFloatConverter());
-        primitiveConverters.put(double.class, new StringToDoubleConverter());
-        primitiveConverters.put(Double.class, new StringToDoubleConverter());
-        primitiveConverters.put(Table.class, new TableConverter());
-        this.executeStepRequest = executeStepRequest;
+    public StepExecutionStage(Method method) {
+        this(method, new MethodExecutor());
+    }
+
+    StepExecutionStage(Method method, MethodExecutor methodExecutor) {
+        this.method = method;
+        this.methodExecutor = methodExecutor;
     }
 
     public void setNextStage(ExecutionStage stage) {
         this.next = stage;
     }
 
-    public Spec.ProtoExecutionResult execute(Spec.ProtoExecutionResult previousStageResult) {
-        if (previousStageResult.getFailed()) {
-            return executeNext(previousStageResult);
+    public void execute(ExecutionContext context) {
+        if (!context.isFailed()) {
+            context.addTimed(executeStepMethod(context, method, context.getExecuteStepRequest().getParametersList()));
         }
-        Spec.ProtoExecutionResult stageResult = executeStep();
-        return executeNext(mergeExecResults(previousStageResult, stageResult));
-    }
-
-    private Spec.ProtoExecutionResult executeStep() {
-        Method method = StepRegistry.get(executeStepRequest.getParsedStepText());
-        MethodExecutor methodExecutor = new MethodExecutor();
-        return executeStepMethod(methodExecutor, method);
-
+        executeNext(context);
     }
 
-    public Spec.ProtoExecutionResult executeStepMethod(MethodExecutor methodExecutor, Method method) {
-        List<Spec.Parameter> args = executeStepRequest.getParametersList();
+    private Spec.ProtoExecutionResult executeStepMethod(ExecutionContext context, Method method, List<Spec.Parameter> args) {
+        Object[] arguments = new Object[0];
         if (args != null && args.size() > 0) {
-            Object[] parameters = new Object[args.size()];
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            for (int i = 0; i < parameterTypes.length; i++) {
-                Class<?> parameterType = parameterTypes[i];
-                if (primitiveConverters.containsKey(parameterType)) {
-                    parameters[i] = primitiveConverters.get(parameterType).convert(args.get(i));
-                } else {
-                    parameters[i] = args.get(i).getValue();
-                }
+            long startTime = System.nanoTime();
+            try {
+                arguments = ArgumentBinder.forMethod(method).bind(args);
+            } catch (Throwable e) {
+                return methodExecutor.failure(context, ExecutionTimings.Stage.ARGUMENT_CONVERSION, startTime, e);
             }
-            return methodExecutor.execute(method, parameters);
-        } else {
-            return methodExecutor.execute(method);
+            context.getTimings().add(ExecutionTimings.Stage.ARGUMENT_CONVERSION, System.nanoTime() - startTime);
         }
+        return methodExecutor.execute(context, ExecutionTimings.Stage.STEP, method.getDeclaringClass(), method, arguments);
     }
 
     protected ExecutionStage next() {
         return next;
     }
-}
\ No newline at end of file
+}
@@ -17,74 +17,279 @@
 
 package com.thoughtworks.gauge.execution;
 
+import com.thoughtworks.gauge.ParameterConverter;
 import com.thoughtworks.gauge.Table;
 import gauge.messages.Spec;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 interface StringToPrimitiveConverter {
     Object convert(Spec.Parameter source);
 }
 
-class StringToIntegerConverter implements StringToPrimitiveConverter {
+class StringConverter implements StringToPrimitiveConverter {
     public Object convert(Spec.Parameter source) {
-        return Integer.parseInt(source.getValue());
+        return source.getValue();
     }
 }
 
-class StringToBooleanConverter implements StringToPrimitiveConverter {
+class ParameterValueConverter implements StringToPrimitiveConverter {
+    private static final int CACHE_SIZE = 64;
+    private final ParameterConverter converter;
+    private final Class<?> type;
+    private final Map<String, Object> cache;
+
+    ParameterValueConverter(ParameterConverter converter, Class<?> type, boolean cacheValues) {
+        this.converter = converter;
+        this.type = type;
+        this.cache = cacheValues ? new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        } : null;
+    }
+
     public Object convert(Spec.Parameter source) {
-        return Boolean.parseBoolean(source.getValue());
+        String value = source.getValue();
+        if (cache == null) {
+            return convertValue(converter, value, type);
+        }
+        synchronized (cache) {
+            Object cached = cache.get(value);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Object converted = convertValue(converter, value, type);
+        if (converted != null) {
+            synchronized (cache) {
+                cache.put(value, converted);
+            }
+        }
+        return converted;
+    }
+
+    static Object convertValue(ParameterConverter converter, String value, Class<?> type) {
+        try {
+            return converter.convert(value, type);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not convert '" + value + "' to " + type.getName(), e);
+        }
     }
 }
 
-class StringToDoubleConverter implements StringToPrimitiveConverter {
+class ListConverter implements StringToPrimitiveConverter {
+    private final ParameterConverter elementConverter;
+    private final Class<?> elementType;
+
+    ListConverter(ParameterConverter elementConverter, Class<?> elementType) {
+        this.elementConverter = elementConverter;
+        this.elementType = elementType;
+    }
+
     public Object convert(Spec.Parameter source) {
-        return Double.parseDouble(source.getValue());
+        List<Object> list = new ArrayList<Object>();
+        for (String element : ArrayConverter.split(source.getValue())) {
+            list.add(elementConverter == null ? element : ParameterValueConverter.convertValue(elementConverter, element, elementType));
+        }
+        return list;
     }
 }
 
-class StringToLongConverter implements StringToPrimitiveConverter {
-    public Object convert(Spec.Parameter source) {
-        return Long.parseLong(source.getValue());
+class PrimitiveConverter implements ParameterConverter {
+    private static final Set<Class<?>> wrappers = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            Integer.class, Long.class, Boolean.class, Double.class, Float.class, Short.class, Byte.class, Character.class));
+
+    static boolean isWrapper(Class<?> type) {
+        return wrappers.contains(type);
+    }
+
+    public boolean canConvert(Class<?> type) {
+        return (type.isPrimitive() && type != void.class) || isWrapper(type);
+    }
+
+    public Object convert(String value, Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return Integer.parseInt(value);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return Boolean.parseBoolean(value);
+        }
+        if (type == long.class || type == Long.class) {
+            return Long.parseLong(value);
+        }
+        if (type == double.class || type == Double.class) {
+            return Double.parseDouble(value);
+        }
+        if (type == float.class || type == Float.class) {
+            return Float.parseFloat(value);
+        }
+        if (type == short.class || type == Short.class) {
+            return Short.parseShort(value);
+        }
+        if (type == byte.class || type == Byte.class) {
+            return Byte.parseByte(value);
+        }
+        if (value.length() != 1) {
+            throw new IllegalArgumentException("Expected a single character but was '" + value + "'");
+        }
+        return value.charAt(0);
     }
 }
 
-class StringToFloatConverter implements StringToPrimitiveConverter {
-    public Object convert(Spec.Parameter source) {
-        return Float.parseFloat(source.getValue());
+class EnumConverter implements ParameterConverter {
+    public boolean canConvert(Class<?> type) {
+        return type.isEnum();
+    }
+
+    public Object convert(String value, Class<?> type) {
+        String name = value.trim();
+        for (Object constant : type.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equals(name)) {
+                return constant;
+            }
+        }
+        for (Object constant : type.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equalsIgnoreCase(name)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No constant " + name + " in " + type.getName());
     }
 }
 
-class TableConverter implements StringToPrimitiveConverter {
+/**
+ * Comma separated values, each converted to the component type.
+ */
+class ArrayConverter implements ParameterConverter {
+    private static final String SEPARATOR = ",";
 
-    public Object convert(Spec.Parameter source) {
-        Spec.ProtoTable protoTable = source.getTable();
-        return tableFromProto(protoTable);
+    static List<String> split(String value) {
+        List<String> elements = new ArrayList<String>();
+        if (value.trim().isEmpty()) {
+            return elements;
+        }
+        for (String element : value.split(SEPARATOR, -1)) {
+            elements.add(element.trim());
+        }
+        return elements;
     }
 
-    private Object tableFromProto(Spec.ProtoTable protoTable) {
-        if (protoTable.getHeaders() == null) {
-            throw new RuntimeException("Invalid table passed");
+    public boolean canConvert(Class<?> type) {
+        return type.isArray() && (type.getComponentType() == String.class || ParameterConverters.find(type.getComponentType()) != null);
+    }
+
+    public Object convert(String value, Class<?> type) throws Exception {
+        Class<?> componentType = type.getComponentType();
+        ParameterConverter elementConverter = ParameterConverters.find(componentType);
+        List<String> elements = split(value);
+        Object array = Array.newInstance(componentType, elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            Array.set(array, i, elementConverter == null ? elements.get(i) : elementConverter.convert(elements.get(i), componentType));
         }
-        Spec.ProtoTableRow headerRow = protoTable.getHeaders();
-        List<String> headers = getTableRowFor(headerRow);
-        Table table = new Table(headers);
+        return array;
+    }
+}
+
+/**
+ * Types with a public static valueOf(String), parse(CharSequence), parse(String) or fromString(String) method,
+ * or a public constructor taking a String, such as BigDecimal, UUID and the java.time types.
+ */
+class StaticFactoryConverter implements ParameterConverter {
+    private static final String[] FACTORY_METHODS = {"valueOf", "parse", "fromString"};
+    private static final Class<?>[][] FACTORY_PARAMETERS = {{String.class}, {CharSequence.class}};
+    private final ConcurrentMap<Class<?>, Member> factories = new ConcurrentHashMap<Class<?>, Member>();
+
+    public boolean canConvert(Class<?> type) {
+        return factory(type) != null;
+    }
 
-        for (int i = 0; i < protoTable.getRowsCount(); i++) {
-            Spec.ProtoTableRow protoRow = protoTable.getRows(i);
-            table.addRow(getTableRowFor(protoRow));
+    public Object convert(String value, Class<?> type) throws Exception {
+        Member factory = factory(type);
+        try {
+            if (factory instanceof Method) {
+                return ((Method) factory).invoke(null, value);
+            }
+            return ((Constructor<?>) factory).newInstance(value);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
         }
-        return table;
+    }
+
+    private Member factory(Class<?> type) {
+        Member factory = factories.get(type);
+        if (factory == null) {
+            factory = findFactory(type);
+            if (factory != null) {
+                factories.put(type, factory);
+            }
+        }
+        return factory;
+    }
 
+    private static Member findFactory(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || !Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        for (String name : FACTORY_METHODS) {
+            for (Class<?>[] parameters : FACTORY_PARAMETERS) {
+                try {
+                    Method method = type.getMethod(name, parameters);
+                    if (Modifier.isStatic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType())) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException e) {
+                    // try the next candidate
+                }
+            }
+        }
+        try {
+            Constructor<?> constructor = type.getConstructor(String.class);
+            return Modifier.isAbstract(type.getModifiers()) ? null : constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
     }
+}
+
+/**
+ * Wraps the proto table without copying it; rows and cells are read from the message when the step accesses them.
+ */
+class TableConverter implements StringToPrimitiveConverter {
 
-    private List<String> getTableRowFor(Spec.ProtoTableRow tableRow) {
-        List<String> row = new ArrayList<String>();
-        for (int i = 0; i < tableRow.getCellsCount(); i++) {
-            row.add(tableRow.getCells(i));
+    public Object convert(Spec.Parameter source) {
+        final Spec.ProtoTable protoTable = source.getTable();
+        if (protoTable.getHeaders() == null) {
+            throw new RuntimeException("Invalid table passed");
         }
-        return row;
+        return new Table(protoTable.getHeaders().getCellsList(), new AbstractList<List<String>>() {
+            public List<String> get(int index) {
+                return protoTable.getRows(index).getCellsList();
+            }
+
+            public int size() {
+                return protoTable.getRowsCount();
+            }
+        });
     }
 }
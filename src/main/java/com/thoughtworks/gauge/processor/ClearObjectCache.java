@@ -2,6 +2,10 @@ package com.thoughtworks.gauge.processor;
 
 import com.thoughtworks.gauge.ClassInstanceManager;
 
+/**
+ * The lifetimes of step class instances, from the longest to the shortest. Instances live until the end of the
+ * level set by {@link #clear_state_flag}, which is read once; without it they live as long as the runner.
+ */
 public enum ClearObjectCache {
     SUITE_LEVEL("suite"), SPEC_LEVEL("spec"), SCENARIO_LEVEL("scenario");
     private final String level;
@@ -11,11 +15,32 @@ public enum ClearObjectCache {
     }
 
     public static final String clear_state_flag = "gauge_clear_state_level";
+    private static final ClearObjectCache configuredLevel = fromLevel(System.getenv(clear_state_flag));
 
-    public static void clear(ClearObjectCache currentPosition){
-        String level = System.getenv(clear_state_flag);
-        if(level != null && level.equals(currentPosition.level)){
+    /**
+     * Clears the cached instances if their lifetime ends with the given level, i.e. it is the configured level
+     * or a longer one.
+     */
+    public static void clear(ClearObjectCache currentPosition) {
+        if (endsLifetime(configuredLevel, currentPosition)) {
             ClassInstanceManager.clearCache();
         }
     }
+
+    static boolean endsLifetime(ClearObjectCache configuredLevel, ClearObjectCache currentPosition) {
+        return configuredLevel != null && currentPosition.ordinal() <= configuredLevel.ordinal();
+    }
+
+    static ClearObjectCache fromLevel(String level) {
+        if (level == null || level.trim().isEmpty()) {
+            return null;
+        }
+        for (ClearObjectCache value : values()) {
+            if (value.level.equals(level.trim())) {
+                return value;
+            }
+        }
+        System.out.println("Unknown " + clear_state_flag + " '" + level + "', instances are not cleared");
+        return null;
+    }
 }
@@ -17,25 +17,51 @@
 
 package com.thoughtworks.gauge.processor;
 
+import com.thoughtworks.gauge.DebugLog;
 import com.thoughtworks.gauge.HooksRegistry;
 import com.thoughtworks.gauge.StepRegistry;
+import com.thoughtworks.gauge.execution.ExecutionContext;
 import com.thoughtworks.gauge.execution.ExecutionPipeline;
+import com.thoughtworks.gauge.execution.ExecutionTimings;
 import com.thoughtworks.gauge.execution.HookExecutionStage;
 import com.thoughtworks.gauge.execution.StepExecutionStage;
 import gauge.messages.Messages;
 import gauge.messages.Spec;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ExecuteStepProcessor extends MethodExecutionMessageProcessor implements IMessageProcessor {
+    private final ConcurrentMap<Method, ExecutionPipeline> pipelines = new ConcurrentHashMap<Method, ExecutionPipeline>();
 
     public Messages.Message process(Messages.Message message) {
-        Method method = StepRegistry.get(message.getExecuteStepRequest().getParsedStepText());
-        ExecutionPipeline pipeline = new ExecutionPipeline(new HookExecutionStage(HooksRegistry.getBeforeClassStepsHooksOfClass(method.getDeclaringClass())));
-        pipeline.addStages(new StepExecutionStage(message.getExecuteStepRequest()),
-                           new HookExecutionStage(HooksRegistry.getAfterClassStepsHooksOfClass(method.getDeclaringClass())));
-
-        Spec.ProtoExecutionResult protoExecutionResult = pipeline.start();
+        Messages.ExecuteStepRequest executeStepRequest = message.getExecuteStepRequest();
+        Method method = StepRegistry.get(executeStepRequest.getParsedStepText());
+        ExecutionContext context = new ExecutionContext(executeStepRequest);
+        Spec.ProtoExecutionResult protoExecutionResult = pipelineFor(method).start(context);
+        if (DebugLog.isEnabled()) {
+            DebugLog.log("Executed step '%s': %s", executeStepRequest.getActualStepText(), context.getTimings());
+        }
         return createMessageWithExecutionStatusResponse(message, protoExecutionResult);
     }
+
+    /**
+     * Drops the pipelines, which hold on to the step methods and hooks they were built for.
+     */
+    public void clearPipelines() {
+        pipelines.clear();
+    }
+
+    private ExecutionPipeline pipelineFor(Method method) {
+        ExecutionPipeline pipeline = pipelines.get(method);
+        if (pipeline == null) {
+            Class<?> stepClass = method.getDeclaringClass();
+            pipeline = new ExecutionPipeline(new HookExecutionStage(HooksRegistry.getBeforeClassStepsHooksOfClass(stepClass), stepClass, ExecutionTimings.Stage.BEFORE_CLASS_HOOKS));
+            pipeline.addStages(new StepExecutionStage(method),
+                               new HookExecutionStage(HooksRegistry.getAfterClassStepsHooksOfClass(stepClass), stepClass, ExecutionTimings.Stage.AFTER_CLASS_HOOKS));
+            pipelines.put(method, pipeline);
+        }
+        return pipeline;
+    }
 }
@@ -0,0 +1,112 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.AfterClassSteps;
+import com.thoughtworks.gauge.AfterScenario;
+import com.thoughtworks.gauge.AfterSpec;
+import com.thoughtworks.gauge.AfterStep;
+import com.thoughtworks.gauge.AfterSuite;
+import com.thoughtworks.gauge.BeforeClassSteps;
+import com.thoughtworks.gauge.BeforeScenario;
+import com.thoughtworks.gauge.BeforeSpec;
+import com.thoughtworks.gauge.BeforeStep;
+import com.thoughtworks.gauge.BeforeSuite;
+import com.thoughtworks.gauge.Step;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Step implementations and hooks found on the classpath, grouped by their gauge annotation.
+ */
+public class AnnotatedMethods {
+    public static final List<Class<? extends Annotation>> GAUGE_ANNOTATIONS;
+
+    static {
+        List<Class<? extends Annotation>> annotations = new ArrayList<Class<? extends Annotation>>();
+        annotations.add(Step.class);
+        annotations.add(BeforeSuite.class);
+        annotations.add(AfterSuite.class);
+        annotations.add(BeforeSpec.class);
+        annotations.add(AfterSpec.class);
+        annotations.add(BeforeScenario.class);
+        annotations.add(AfterScenario.class);
+        annotations.add(BeforeStep.class);
+        annotations.add(AfterStep.class);
+        annotations.add(BeforeClassSteps.class);
+        annotations.add(AfterClassSteps.class);
+        GAUGE_ANNOTATIONS = Collections.unmodifiableList(annotations);
+    }
+
+    private final Map<Class<? extends Annotation>, Set<Method>> methods = new HashMap<Class<? extends Annotation>, Set<Method>>();
+
+    public void add(Class<? extends Annotation> annotation, Method method) {
+        Set<Method> annotated = methods.get(annotation);
+        if (annotated == null) {
+            annotated = new HashSet<Method>();
+            methods.put(annotation, annotated);
+        }
+        annotated.add(method);
+    }
+
+    public void addAll(Class<? extends Annotation> annotation, Set<Method> annotatedMethods) {
+        for (Method method : annotatedMethods) {
+            add(annotation, method);
+        }
+    }
+
+    public void addAll(AnnotatedMethods annotatedMethods) {
+        for (Map.Entry<Class<? extends Annotation>, Set<Method>> entry : annotatedMethods.methods.entrySet()) {
+            addAll(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds the methods of the given entries, skipping entries whose method no longer exists.
+     */
+    public void addEntries(List<StepIndexEntry> entries, ClassLoader classLoader) {
+        for (StepIndexEntry entry : entries) {
+            Method method = entry.resolve(classLoader);
+            if (method != null) {
+                add(annotationNamed(entry.getAnnotation()), method);
+            }
+        }
+    }
+
+    public Set<Method> get(Class<? extends Annotation> annotation) {
+        Set<Method> annotated = methods.get(annotation);
+        return annotated == null ? new HashSet<Method>() : annotated;
+    }
+
+    public static Class<? extends Annotation> annotationNamed(String simpleName) {
+        for (Class<? extends Annotation> annotation : GAUGE_ANNOTATIONS) {
+            if (annotation.getSimpleName().equals(simpleName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,276 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watches the class directories on the classpath and loads them again in a new {@link ReloadingClassLoader} when
+ * classes change, so step implementations can be changed without restarting the runner. Only changed class files
+ * are scanned again; the reload is prepared in the background and applied by {@link #applyPendingReload()} when
+ * the runner is not executing.
+ */
+public class ClassReloader implements Runnable {
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final List<File> directories;
+    private final AnnotatedMethods classpathMethods;
+    private final JavassistScanner scanner;
+    private final ClassLoader parent;
+    private final Listener listener;
+    private final long interval;
+    private final Map<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+    private final AtomicReference<Reload> pendingReload = new AtomicReference<Reload>();
+    private boolean initialized;
+
+    public interface Listener {
+        /**
+         * Called with the step implementations and hooks found after a reload, replacing all registered ones.
+         *
+         * @param reloadedClasses the classes of the watched directories, before and after the reload
+         */
+        void reloaded(AnnotatedMethods annotatedMethods, Set<String> reloadedClasses) throws Exception;
+    }
+
+    /**
+     * @param classpathMethods the step implementations and hooks found on the whole classpath at startup
+     */
+    public ClassReloader(List<File> directories, AnnotatedMethods classpathMethods, JavassistScanner scanner, ClassLoader parent,
+                         Listener listener, long interval) {
+        this.directories = directories;
+        this.classpathMethods = classpathMethods;
+        this.scanner = scanner;
+        this.parent = parent;
+        this.listener = listener;
+        this.interval = interval;
+    }
+
+    /**
+     * Scans the class files as they are now, the classes loaded at startup.
+     */
+    public synchronized void initialize() throws IOException {
+        if (initialized) {
+            return;
+        }
+        for (Map.Entry<String, FileState> file : currentState().entrySet()) {
+            classFiles.put(file.getKey(), new ClassFile(file.getValue(), scanner.scanClassFile(file.getValue().file, file.getValue().relativePath)));
+        }
+        initialized = true;
+    }
+
+    /**
+     * @return the directories among the classpath entries
+     */
+    public static List<File> directoriesOf(List<URL> classpath) {
+        List<File> directories = new ArrayList<File>();
+        for (URL entry : classpath) {
+            File file = ScanCache.toFile(entry);
+            if (file != null && file.isDirectory()) {
+                directories.add(file);
+            }
+        }
+        return directories;
+    }
+
+    public void run() {
+        try {
+            initialize();
+        } catch (IOException e) {
+            System.out.println("Not watching classes for changes: " + e.getMessage());
+            return;
+        }
+        Map<String, FileState> lastSeen = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(interval);
+                Map<String, FileState> state = currentState();
+                // Wait until the compiler is done writing, i.e. nothing changed since the last look
+                if (state.equals(lastSeen)) {
+                    prepareReload(state);
+                }
+                lastSeen = state;
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable e) {
+                System.out.println("Failed to reload classes: " + e);
+            }
+        }
+    }
+
+    /**
+     * Prepares a reload if any class file changed since the last one.
+     *
+     * @return true if a reload is pending
+     */
+    boolean prepareReloadIfChanged() throws IOException {
+        initialize();
+        prepareReload(currentState());
+        return pendingReload.get() != null;
+    }
+
+    private synchronized void prepareReload(Map<String, FileState> state) throws IOException {
+        Set<String> classNames = classNames(classFiles.keySet());
+        boolean changed = !state.keySet().equals(classFiles.keySet());
+        classFiles.keySet().retainAll(state.keySet());
+        int changedFiles = 0;
+        for (Map.Entry<String, FileState> file : state.entrySet()) {
+            ClassFile classFile = classFiles.get(file.getKey());
+            if (classFile == null || !classFile.state.equals(file.getValue())) {
+                classFiles.put(file.getKey(), new ClassFile(file.getValue(), scanner.scanClassFile(file.getValue().file, file.getValue().relativePath)));
+                changedFiles++;
+            }
+        }
+        if (!changed && changedFiles == 0) {
+            return;
+        }
+        classNames.addAll(classNames(classFiles.keySet()));
+        ClassLoader classLoader = new ReloadingClassLoader(urls(), parent);
+        AnnotatedMethods annotatedMethods = new AnnotatedMethods();
+        for (Class<? extends Annotation> annotation : AnnotatedMethods.GAUGE_ANNOTATIONS) {
+            for (Method method : classpathMethods.get(annotation)) {
+                if (!classNames.contains(method.getDeclaringClass().getName())) {
+                    annotatedMethods.add(annotation, method);
+                }
+            }
+        }
+        for (ClassFile classFile : classFiles.values()) {
+            annotatedMethods.addEntries(classFile.entries, classLoader);
+        }
+        pendingReload.set(new Reload(annotatedMethods, classNames));
+        System.out.println("Reloading classes, " + changedFiles + " class files changed");
+    }
+
+    /**
+     * Prepares and applies a reload on the calling thread if any class file changed since the last one.
+     *
+     * @return true if classes were reloaded
+     */
+    public boolean reloadIfChanged() throws Exception {
+        return prepareReloadIfChanged() && applyPendingReload();
+    }
+
+    /**
+     * Hands a prepared reload to the listener on the calling thread.
+     *
+     * @return true if there was a reload to apply
+     */
+    public boolean applyPendingReload() throws Exception {
+        Reload reload = pendingReload.getAndSet(null);
+        if (reload == null) {
+            return false;
+        }
+        listener.reloaded(reload.annotatedMethods, reload.classNames);
+        return true;
+    }
+
+    private Map<String, FileState> currentState() throws IOException {
+        Map<String, FileState> state = new HashMap<String, FileState>();
+        for (File directory : directories) {
+            addClassFiles(directory, "", state);
+        }
+        return state;
+    }
+
+    private void addClassFiles(File directory, String relativePath, Map<String, FileState> state) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException("Could not list " + directory);
+        }
+        for (File child : children) {
+            String childPath = relativePath + child.getName();
+            if (child.isDirectory()) {
+                addClassFiles(child, childPath + "/", state);
+            } else if (childPath.endsWith(CLASS_EXTENSION) && !state.containsKey(childPath)) {
+                state.put(childPath, new FileState(child, childPath));
+            }
+        }
+    }
+
+    private URL[] urls() throws IOException {
+        URL[] urls = new URL[directories.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = directories.get(i).toURI().toURL();
+        }
+        return urls;
+    }
+
+    private static Set<String> classNames(Set<String> relativePaths) {
+        Set<String> classNames = new HashSet<String>();
+        for (String relativePath : relativePaths) {
+            classNames.add(relativePath.substring(0, relativePath.length() - CLASS_EXTENSION.length()).replace('/', '.'));
+        }
+        return classNames;
+    }
+
+    private static class FileState {
+        private final File file;
+        private final String relativePath;
+        private final long length;
+        private final long lastModified;
+
+        FileState(File file, String relativePath) {
+            this.file = file;
+            this.relativePath = relativePath;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileState)) return false;
+            FileState other = (FileState) o;
+            return file.equals(other.file) && length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode();
+        }
+    }
+
+    private static class ClassFile {
+        private final FileState state;
+        private final List<StepIndexEntry> entries;
+
+        ClassFile(FileState state, List<StepIndexEntry> entries) {
+            this.state = state;
+            this.entries = entries;
+        }
+    }
+
+    private static class Reload {
+        private final AnnotatedMethods annotatedMethods;
+        private final Set<String> classNames;
+
+        Reload(AnnotatedMethods annotatedMethods, Set<String> classNames) {
+            this.annotatedMethods = annotatedMethods;
+            this.classNames = classNames;
+        }
+    }
+}
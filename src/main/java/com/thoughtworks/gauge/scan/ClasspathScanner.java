@@ -0,0 +1,30 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Finds the step implementations and hooks in a single classpath entry.
+ * Implementations must be thread safe, entries are scanned in parallel.
+ */
+public interface ClasspathScanner {
+    List<StepIndexEntry> scan(URL classpathEntry) throws IOException;
+}
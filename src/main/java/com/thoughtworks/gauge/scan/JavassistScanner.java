@@ -0,0 +1,225 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds step implementations and hooks by reading class files with javassist, without loading the classes.
+ * Each class file is read once and checked for all gauge annotations.
+ */
+public class JavassistScanner implements ClasspathScanner {
+    private static final String CLASS_EXTENSION = ".class";
+    private static final Map<String, String> GAUGE_ANNOTATION_NAMES = new HashMap<String, String>();
+
+    static {
+        for (Class<? extends java.lang.annotation.Annotation> annotation : AnnotatedMethods.GAUGE_ANNOTATIONS) {
+            GAUGE_ANNOTATION_NAMES.put(annotation.getName(), annotation.getSimpleName());
+        }
+    }
+
+    private final ScanScope scope;
+
+    public JavassistScanner(ScanScope scope) {
+        this.scope = scope;
+    }
+
+    public List<StepIndexEntry> scan(URL classpathEntry) throws IOException {
+        List<StepIndexEntry> entries = new ArrayList<StepIndexEntry>();
+        byte[] buffer = new byte[8192];
+        File file = ScanCache.toFile(classpathEntry);
+        if (file == null) {
+            throw new IOException("Unsupported classpath entry " + classpathEntry);
+        }
+        if (file.isDirectory()) {
+            scanDirectory(file, "", entries, buffer);
+        } else if (file.isFile()) {
+            scanJar(file, entries, buffer);
+        }
+        return entries;
+    }
+
+    /**
+     * Scans a single class file of a directory on the classpath, e.g. one that changed since the directory was scanned.
+     *
+     * @param relativePath the path of the class file within the directory, e.g. com/example/Steps.class
+     */
+    public List<StepIndexEntry> scanClassFile(File classFile, String relativePath) throws IOException {
+        List<StepIndexEntry> entries = new ArrayList<StepIndexEntry>();
+        if (scope.includesClass(relativePath)) {
+            scanClass(new FileInputStream(classFile), entries, new byte[8192]);
+        }
+        return entries;
+    }
+
+    private void scanDirectory(File directory, String relativePath, List<StepIndexEntry> entries, byte[] buffer) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException("Could not list " + directory);
+        }
+        for (File child : children) {
+            String childPath = relativePath + child.getName();
+            if (child.isDirectory()) {
+                scanDirectory(child, childPath + "/", entries, buffer);
+            } else if (childPath.endsWith(CLASS_EXTENSION) && scope.includesClass(childPath)) {
+                scanClass(new FileInputStream(child), entries, buffer);
+            }
+        }
+    }
+
+    private void scanJar(File file, List<StepIndexEntry> entries, byte[] buffer) throws IOException {
+        ZipFile jar = new ZipFile(file);
+        try {
+            Enumeration<? extends ZipEntry> jarEntries = jar.entries();
+            while (jarEntries.hasMoreElements()) {
+                ZipEntry jarEntry = jarEntries.nextElement();
+                if (jarEntry.getName().endsWith(CLASS_EXTENSION) && scope.includesClass(jarEntry.getName())) {
+                    scanClass(jar.getInputStream(jarEntry), entries, buffer);
+                }
+            }
+        } finally {
+            jar.close();
+        }
+    }
+
+    private void scanClass(InputStream stream, List<StepIndexEntry> entries, byte[] buffer) throws IOException {
+        byte[] bytes = readFully(stream, buffer);
+        // Most classes in a dependency jar never mention a gauge type, so they are not parsed at all
+        if (!ScanScope.referencesGauge(bytes)) {
+            return;
+        }
+        ClassFile classFile = new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes)));
+        for (Object methodObject : classFile.getMethods()) {
+            MethodInfo method = (MethodInfo) methodObject;
+            AnnotationsAttribute attribute = (AnnotationsAttribute) method.getAttribute(AnnotationsAttribute.visibleTag);
+            if (attribute == null) {
+                continue;
+            }
+            for (Annotation annotation : attribute.getAnnotations()) {
+                String annotationName = GAUGE_ANNOTATION_NAMES.get(annotation.getTypeName());
+                if (annotationName != null) {
+                    entries.add(new StepIndexEntry(annotationName, classFile.getName(), method.getName(),
+                            parameterTypes(method.getDescriptor()), stepTexts(annotation)));
+                }
+            }
+        }
+    }
+
+    private static List<String> stepTexts(Annotation annotation) {
+        List<String> stepTexts = new ArrayList<String>();
+        if (!annotation.getTypeName().equals(Step.class.getName())) {
+            return stepTexts;
+        }
+        MemberValue value = annotation.getMemberValue("value");
+        if (value instanceof StringMemberValue) {
+            stepTexts.add(((StringMemberValue) value).getValue());
+        } else if (value instanceof ArrayMemberValue) {
+            for (MemberValue element : ((ArrayMemberValue) value).getValue()) {
+                stepTexts.add(((StringMemberValue) element).getValue());
+            }
+        }
+        return stepTexts;
+    }
+
+    /**
+     * Converts a method descriptor such as (I[Ljava/lang/String;)V to the parameter type names used in step index entries.
+     */
+    static List<String> parameterTypes(String descriptor) {
+        List<String> types = new ArrayList<String>();
+        int i = descriptor.indexOf('(') + 1;
+        while (descriptor.charAt(i) != ')') {
+            int dimensions = 0;
+            while (descriptor.charAt(i) == '[') {
+                dimensions++;
+                i++;
+            }
+            StringBuilder type = new StringBuilder();
+            if (descriptor.charAt(i) == 'L') {
+                int end = descriptor.indexOf(';', i);
+                type.append(descriptor.substring(i + 1, end).replace('/', '.'));
+                i = end + 1;
+            } else {
+                type.append(primitiveName(descriptor.charAt(i++)));
+            }
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                type.append("[]");
+            }
+            types.add(type.toString());
+        }
+        return types;
+    }
+
+    private static String primitiveName(char descriptor) {
+        switch (descriptor) {
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'D':
+                return "double";
+            case 'F':
+                return "float";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'S':
+                return "short";
+            case 'Z':
+                return "boolean";
+            default:
+                throw new IllegalArgumentException("Invalid type descriptor " + descriptor);
+        }
+    }
+
+    private static byte[] readFully(InputStream stream, byte[] buffer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            stream.close();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Loads the classes of the given directories itself instead of asking its parent first, so that a new instance
+ * picks up recompiled classes. Everything else, e.g. the gauge-java api and dependency jars, comes from the parent.
+ */
+class ReloadingClassLoader extends URLClassLoader {
+    private static final String CLASS_EXTENSION = ".class";
+
+    ReloadingClassLoader(URL[] directories, ClassLoader parent) {
+        super(directories, parent);
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        Class<?> loadedClass = findLoadedClass(name);
+        if (loadedClass == null) {
+            if (!name.startsWith("java.") && findResource(name.replace('.', '/') + CLASS_EXTENSION) != null) {
+                loadedClass = findClass(name);
+            } else {
+                return super.loadClass(name, resolve);
+            }
+        }
+        if (resolve) {
+            resolveClass(loadedClass);
+        }
+        return loadedClass;
+    }
+
+    @Override
+    public URL getResource(String name) {
+        URL resource = findResource(name);
+        return resource != null ? resource : super.getResource(name);
+    }
+}
@@ -0,0 +1,271 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.GaugeConstant;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Caches the scan results of each classpath entry on disk, so that only jars and class directories
+ * that changed since the last run are scanned again. Entries are scanned in parallel.
+ * An entry is reused while its fingerprint (size, modification time and checksum of a jar, or the
+ * names and modification times of the files in a class directory) is unchanged.
+ */
+public class ScanCache {
+    private static final String CACHE_FILE_EXTENSION = ".idx";
+    private static final String DEFAULT_CACHE_DIR = ".gauge" + File.separator + "scan-cache";
+
+    private final File directory;
+    private final ClasspathScanner scanner;
+    private final String scannerConfiguration;
+    private final int threads;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    public ScanCache(File directory, ClasspathScanner scanner) {
+        this(directory, scanner, "", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param scannerConfiguration describes what the scanner looks for; cached results of a different configuration are not reused
+     * @param threads              the maximum number of classpath entries scanned in parallel
+     */
+    public ScanCache(File directory, ClasspathScanner scanner, String scannerConfiguration, int threads) {
+        this.directory = directory;
+        this.scanner = scanner;
+        this.scannerConfiguration = scannerConfiguration;
+        this.threads = threads;
+    }
+
+    /**
+     * Creates a cache in the directory given by gauge_scan_cache_dir, defaulting to .gauge/scan-cache in the project root.
+     */
+    public static ScanCache fromEnvironment(ScanScope scope) {
+        ClasspathScanner scanner = new JavassistScanner(scope);
+        int threads = Runtime.getRuntime().availableProcessors();
+        String cacheDir = System.getenv(GaugeConstant.GAUGE_SCAN_CACHE_DIR);
+        if (cacheDir == null || cacheDir.trim().isEmpty()) {
+            String projectRoot = System.getenv(GaugeConstant.GAUGE_PROJECT_ROOT);
+            return new ScanCache(new File(projectRoot == null ? "." : projectRoot, DEFAULT_CACHE_DIR), scanner, scope.toString(), threads);
+        }
+        return new ScanCache(new File(cacheDir.trim()), scanner, scope.toString(), threads);
+    }
+
+    /**
+     * Scans the classpath entries in parallel and resolves the found methods in classpath order.
+     */
+    public AnnotatedMethods scan(Collection<URL> classpath, ClassLoader classLoader) throws IOException {
+        cacheHits.set(0);
+        AnnotatedMethods annotatedMethods = new AnnotatedMethods();
+        if (classpath.isEmpty()) {
+            return annotatedMethods;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, classpath.size())));
+        try {
+            List<Future<List<StepIndexEntry>>> results = new ArrayList<Future<List<StepIndexEntry>>>();
+            for (final URL url : classpath) {
+                results.add(executor.submit(new Callable<List<StepIndexEntry>>() {
+                    public List<StepIndexEntry> call() {
+                        return scan(url);
+                    }
+                }));
+            }
+            for (Future<List<StepIndexEntry>> result : results) {
+                annotatedMethods.addEntries(result.get(), classLoader);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning the classpath");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to scan the classpath", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return annotatedMethods;
+    }
+
+    /**
+     * @return the number of classpath entries served from the cache by the last scan
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    private List<StepIndexEntry> scan(URL url) {
+        File classpathEntry = toFile(url);
+        if (classpathEntry == null || !classpathEntry.exists()) {
+            return new ArrayList<StepIndexEntry>();
+        }
+        File cacheFile = cacheFile(classpathEntry);
+        String fingerprint = null;
+        try {
+            fingerprint = classpathEntry.getAbsolutePath() + "\t" + scannerConfiguration + "\t" + fingerprint(classpathEntry);
+            List<StepIndexEntry> cached = load(cacheFile, fingerprint);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read scan cache for " + classpathEntry + ": " + e.getMessage());
+        }
+        List<StepIndexEntry> entries;
+        try {
+            entries = scanner.scan(url);
+        } catch (IOException e) {
+            System.out.println("Could not scan " + classpathEntry + ": " + e.getMessage());
+            return new ArrayList<StepIndexEntry>();
+        }
+        if (fingerprint != null) {
+            try {
+                store(cacheFile, fingerprint, entries);
+            } catch (IOException e) {
+                System.out.println("Could not write scan cache for " + classpathEntry + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    static String fingerprint(File classpathEntry) throws IOException {
+        if (classpathEntry.isDirectory()) {
+            DirectoryFingerprint fingerprint = new DirectoryFingerprint();
+            fingerprint.add(classpathEntry, "");
+            return "dir:" + fingerprint;
+        }
+        return "jar:" + classpathEntry.length() + ":" + classpathEntry.lastModified() + ":" + Long.toHexString(checksum(classpathEntry));
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream stream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } finally {
+            stream.close();
+        }
+        return crc.getValue();
+    }
+
+    private File cacheFile(File classpathEntry) {
+        String path = classpathEntry.getAbsolutePath();
+        return new File(directory, classpathEntry.getName() + "-" + Integer.toHexString(path.hashCode()) + CACHE_FILE_EXTENSION);
+    }
+
+    private List<StepIndexEntry> load(File cacheFile, String fingerprint) throws IOException {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StepIndex.ENCODING));
+        try {
+            if (!fingerprint.equals(reader.readLine())) {
+                return null;
+            }
+            return StepIndex.read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void store(File cacheFile, String fingerprint, List<StepIndexEntry> entries) throws IOException {
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("could not create " + directory);
+        }
+        // Written to a temporary file first so that a concurrent run never reads a partial cache entry
+        File temporary = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(temporary), StepIndex.ENCODING);
+        try {
+            writer.write(fingerprint);
+            writer.write('\n');
+            StepIndex.write(entries, writer);
+        } finally {
+            writer.close();
+        }
+        cacheFile.delete();
+        if (!temporary.renameTo(cacheFile)) {
+            temporary.delete();
+            throw new IOException("could not replace " + cacheFile);
+        }
+    }
+
+    static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        } catch (IllegalArgumentException e) {
+            return new File(url.getPath());
+        }
+    }
+
+    private static class DirectoryFingerprint {
+        private int files;
+        private long latestModification;
+        private final CRC32 names = new CRC32();
+
+        void add(File directory, String relativePath) throws IOException {
+            File[] children = directory.listFiles();
+            if (children == null) {
+                throw new IOException("could not list " + directory);
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                String childPath = relativePath + "/" + child.getName();
+                if (child.isDirectory()) {
+                    add(child, childPath);
+                } else {
+                    files++;
+                    latestModification = Math.max(latestModification, child.lastModified());
+                    names.update((childPath + ":" + child.lastModified() + "\n").getBytes(StepIndex.ENCODING));
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return files + ":" + latestModification + ":" + Long.toHexString(names.getValue());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.GaugeConstant;
+import com.thoughtworks.gauge.Step;
+
+import java.io.File;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Limits classpath scanning to the packages given by gauge_scan_packages, skipping the jars matched by
+ * gauge_scan_exclude_jars and the gauge-java jar itself.
+ */
+public class ScanScope {
+    private static final String SEPARATOR = ",";
+    private static final byte[] GAUGE_TYPE_DESCRIPTOR = "Lcom/thoughtworks/gauge/".getBytes();
+
+    private final List<String> packages;
+    private final List<String> excludedJars;
+    private final List<Pattern> excludedJarPatterns = new ArrayList<Pattern>();
+
+    public ScanScope(List<String> packages, List<String> excludedJars) {
+        this.packages = packages;
+        this.excludedJars = excludedJars;
+        for (String excludedJar : excludedJars) {
+            excludedJarPatterns.add(globPattern(excludedJar));
+        }
+    }
+
+    public static ScanScope fromEnvironment() {
+        return new ScanScope(listFromEnv(GaugeConstant.GAUGE_SCAN_PACKAGES), listFromEnv(GaugeConstant.GAUGE_SCAN_EXCLUDE_JARS));
+    }
+
+    /**
+     * @return the classpath entries that should be scanned
+     */
+    public List<URL> filter(Collection<URL> classpath) {
+        URL gaugeJavaLocation = gaugeJavaLocation();
+        List<URL> included = new ArrayList<URL>();
+        for (URL url : classpath) {
+            File file = ScanCache.toFile(url);
+            if (url.equals(gaugeJavaLocation) || (file != null && isExcluded(file))) {
+                continue;
+            }
+            included.add(url);
+        }
+        return included;
+    }
+
+    private boolean isExcluded(File file) {
+        for (Pattern pattern : excludedJarPatterns) {
+            if (pattern.matcher(file.getName()).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the class or resource, given either as a path or as a qualified name, is in a scanned package
+     */
+    public boolean includesClass(String input) {
+        if (packages.isEmpty()) {
+            return true;
+        }
+        String name = input.replace('/', '.');
+        for (String scannedPackage : packages) {
+            if (name.startsWith(scannedPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the class file refers to a type in the gauge package, e.g. in an annotation
+     */
+    public static boolean referencesGauge(byte[] classBytes) {
+        return contains(classBytes, GAUGE_TYPE_DESCRIPTOR);
+    }
+
+    static boolean contains(byte[] bytes, byte[] sequence) {
+        outer:
+        for (int i = 0; i <= bytes.length - sequence.length; i++) {
+            for (int j = 0; j < sequence.length; j++) {
+                if (bytes[i + j] != sequence[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static URL gaugeJavaLocation() {
+        CodeSource codeSource = Step.class.getProtectionDomain().getCodeSource();
+        return codeSource == null ? null : codeSource.getLocation();
+    }
+
+    private static Pattern globPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        String[] parts = glob.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(parts[i]));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static List<String> listFromEnv(String name) {
+        List<String> values = new ArrayList<String>();
+        String value = System.getenv(name);
+        if (value != null) {
+            for (String item : value.split(SEPARATOR)) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "packages=" + packages + " excludedJars=" + excludedJars;
+    }
+}
@@ -0,0 +1,113 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads and writes the step index generated at compile time by {@link StepIndexProcessor}.
+ */
+public class StepIndex {
+    public static final String RESOURCE = "META-INF/gauge/steps.idx";
+    static final String ENCODING = "UTF-8";
+    private static final String COMMENT = "#";
+
+    /**
+     * Loads the step implementations and hooks listed in the step indexes of the given classpath entries.
+     * Each entry is looked at on its own, so entries built without {@link StepIndexProcessor} can still be scanned.
+     * @param annotatedMethods receives the indexed methods
+     * @return the classpath entries without a step index
+     */
+    public static List<URL> load(Collection<URL> classpath, ClassLoader classLoader, AnnotatedMethods annotatedMethods) throws IOException {
+        List<URL> unindexed = new ArrayList<URL>();
+        for (URL url : classpath) {
+            List<StepIndexEntry> entries = readIndexOf(ScanCache.toFile(url));
+            if (entries == null) {
+                unindexed.add(url);
+            } else {
+                // Stale entries (deleted classes or methods) are left behind by incremental compilation
+                annotatedMethods.addEntries(entries, classLoader);
+            }
+        }
+        return unindexed;
+    }
+
+    private static List<StepIndexEntry> readIndexOf(File file) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        if (file.isDirectory()) {
+            File index = new File(file, RESOURCE);
+            if (!index.isFile()) {
+                return null;
+            }
+            InputStream stream = new FileInputStream(index);
+            try {
+                return read(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        JarFile jar = new JarFile(file);
+        try {
+            ZipEntry index = jar.getEntry(RESOURCE);
+            return index == null ? null : read(jar.getInputStream(index));
+        } finally {
+            jar.close();
+        }
+    }
+
+    public static List<StepIndexEntry> read(InputStream stream) throws IOException {
+        return read(new BufferedReader(new InputStreamReader(stream, ENCODING)));
+    }
+
+    static List<StepIndexEntry> read(BufferedReader reader) throws IOException {
+        List<StepIndexEntry> entries = new ArrayList<StepIndexEntry>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.length() > 0 && !line.startsWith(COMMENT)) {
+                entries.add(StepIndexEntry.fromLine(line));
+            }
+        }
+        return entries;
+    }
+
+    public static void write(List<StepIndexEntry> entries, Writer writer) throws IOException {
+        writer.write(COMMENT + " Generated by gauge-java, do not edit\n");
+        for (StepIndexEntry entry : entries) {
+            writer.write(entry.toLine());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
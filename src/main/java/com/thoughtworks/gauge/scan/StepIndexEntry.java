@@ -0,0 +1,208 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One annotated method in a step index: the gauge annotation, the method's class, name and parameter types,
+ * and the step texts for step implementations.
+ * Serialized as a single tab separated line.
+ */
+public class StepIndexEntry {
+    private static final char SEPARATOR = '\t';
+    private static final String PARAMETER_SEPARATOR = ",";
+
+    private final String annotation;
+    private final String className;
+    private final String methodName;
+    private final List<String> parameterTypes;
+    private final List<String> stepTexts;
+
+    public StepIndexEntry(String annotation, String className, String methodName, List<String> parameterTypes, List<String> stepTexts) {
+        this.annotation = annotation;
+        this.className = className;
+        this.methodName = methodName;
+        this.parameterTypes = parameterTypes;
+        this.stepTexts = stepTexts;
+    }
+
+    public static StepIndexEntry from(Class<? extends Annotation> annotation, Method method) {
+        List<String> stepTexts = new ArrayList<String>();
+        Step step = method.getAnnotation(Step.class);
+        if (annotation == Step.class && step != null) {
+            stepTexts.addAll(Arrays.asList(step.value()));
+        }
+        return from(annotation, method, stepTexts);
+    }
+
+    public static StepIndexEntry from(Class<? extends Annotation> annotation, Method method, List<String> stepTexts) {
+        List<String> parameterTypes = new ArrayList<String>();
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            parameterTypes.add(typeName(parameterType));
+        }
+        return new StepIndexEntry(annotation.getSimpleName(), method.getDeclaringClass().getName(), method.getName(), parameterTypes, stepTexts);
+    }
+
+    public String getAnnotation() {
+        return annotation;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public List<String> getStepTexts() {
+        return stepTexts;
+    }
+
+    /**
+     * @return the indexed method, or null if the class or method no longer exists or is no longer annotated
+     */
+    public Method resolve(ClassLoader classLoader) {
+        Class<? extends Annotation> annotationClass = AnnotatedMethods.annotationNamed(annotation);
+        if (annotationClass == null) {
+            return null;
+        }
+        Class<?> declaringClass;
+        try {
+            declaringClass = Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+        for (Method method : declaringClass.getDeclaredMethods()) {
+            if (method.getName().equals(methodName) && matchesParameters(method) && method.isAnnotationPresent(annotationClass)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private boolean matchesParameters(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length != parameterTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!typeName(types[i]).equals(parameterTypes.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String typeName(Class<?> type) {
+        if (type.isArray()) {
+            return typeName(type.getComponentType()) + "[]";
+        }
+        return type.getName();
+    }
+
+    public String toLine() {
+        StringBuilder line = new StringBuilder();
+        line.append(escape(annotation)).append(SEPARATOR)
+                .append(escape(className)).append(SEPARATOR)
+                .append(escape(methodName)).append(SEPARATOR)
+                .append(escape(join(parameterTypes)));
+        for (String stepText : stepTexts) {
+            line.append(SEPARATOR).append(escape(stepText));
+        }
+        return line.toString();
+    }
+
+    public static StepIndexEntry fromLine(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        if (fields.size() < 4) {
+            throw new IllegalArgumentException("Invalid step index entry: " + line);
+        }
+        List<String> parameterTypes = fields.get(3).length() == 0 ? new ArrayList<String>() : Arrays.asList(fields.get(3).split(PARAMETER_SEPARATOR));
+        return new StepIndexEntry(fields.get(0), fields.get(1), fields.get(2), parameterTypes, new ArrayList<String>(fields.subList(4, fields.size())));
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(PARAMETER_SEPARATOR);
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StepIndexEntry && toLine().equals(((StepIndexEntry) o).toLine());
+    }
+
+    @Override
+    public int hashCode() {
+        return toLine().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+}
@@ -0,0 +1,170 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor writing {@link StepIndex#RESOURCE} with every step implementation and hook being compiled,
+ * so the runner can skip scanning the classpath.
+ * It is picked up by javac automatically when gauge-java is on the compile classpath.
+ * Entries of classes that are not part of the current compilation are kept, to support incremental builds.
+ */
+public class StepIndexProcessor extends AbstractProcessor {
+    private final List<StepIndexEntry> entries = new ArrayList<StepIndexEntry>();
+    private final Set<String> compiledClasses = new HashSet<String>();
+
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> annotationTypes = new HashSet<String>();
+        for (Class<? extends Annotation> annotation : AnnotatedMethods.GAUGE_ANNOTATIONS) {
+            annotationTypes.add(annotation.getName());
+        }
+        return annotationTypes;
+    }
+
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                compiledClasses.add(binaryName((TypeElement) element));
+            }
+        }
+        for (Class<? extends Annotation> annotation : AnnotatedMethods.GAUGE_ANNOTATIONS) {
+            TypeElement annotationType = processingEnv.getElementUtils().getTypeElement(annotation.getName());
+            if (annotationType == null) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotationType)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    entries.add(entryFor(annotation, (ExecutableElement) element));
+                }
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private StepIndexEntry entryFor(Class<? extends Annotation> annotation, ExecutableElement method) {
+        List<String> parameterTypes = new ArrayList<String>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterTypes.add(typeName(parameter.asType()));
+        }
+        List<String> stepTexts = new ArrayList<String>();
+        Step step = method.getAnnotation(Step.class);
+        if (annotation.equals(Step.class) && step != null) {
+            stepTexts.addAll(Arrays.asList(step.value()));
+        }
+        String className = binaryName((TypeElement) method.getEnclosingElement());
+        return new StepIndexEntry(annotation.getSimpleName(), className, method.getSimpleName().toString(), parameterTypes, stepTexts);
+    }
+
+    private String typeName(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        if (erasure.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) erasure).getComponentType()) + "[]";
+        }
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return binaryName((TypeElement) ((DeclaredType) erasure).asElement());
+        }
+        return erasure.toString();
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeIndex() {
+        Set<StepIndexEntry> index = new LinkedHashSet<StepIndexEntry>();
+        for (StepIndexEntry entry : readExistingIndex()) {
+            if (!isRecompiled(entry.getClassName())) {
+                index.add(entry);
+            }
+        }
+        index.addAll(entries);
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", StepIndex.RESOURCE);
+            Writer writer = new OutputStreamWriter(resource.openOutputStream(), StepIndex.ENCODING);
+            try {
+                StepIndex.write(new ArrayList<StepIndexEntry>(index), writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write gauge step index: " + e.getMessage());
+        }
+    }
+
+    private List<StepIndexEntry> readExistingIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", StepIndex.RESOURCE);
+            InputStream stream = resource.openInputStream();
+            try {
+                return StepIndex.read(stream);
+            } finally {
+                stream.close();
+            }
+        } catch (Exception e) {
+            // No index from a previous compilation
+            return new ArrayList<StepIndexEntry>();
+        }
+    }
+
+    private boolean isRecompiled(String className) {
+        for (String compiledClass : compiledClasses) {
+            if (className.equals(compiledClass) || className.startsWith(compiledClass + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,16 @@ package com.thoughtworks.gauge;
 
 import junit.framework.TestCase;
 
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 public class ClassInstanceManagerTest extends TestCase {
 
     protected void setUp() throws Exception {
@@ -40,4 +50,70 @@ public class ClassInstanceManagerTest extends TestCase {
         assertTrue(object2 instanceof TestImplClass);
         assertFalse(object1.equals(object2));
     }
-}
\ No newline at end of file
+
+    public void testClearingCacheClosesCloseableInstances() throws Exception {
+        ClosingSteps steps = (ClosingSteps) ClassInstanceManager.get(ClosingSteps.class);
+        ClassInstanceManager.clearCache();
+        assertTrue(steps.closed);
+    }
+
+    public void testEvictingDropsAndClosesInstancesOfTheGivenClasses() throws Exception {
+        ClosingSteps steps = (ClosingSteps) ClassInstanceManager.get(ClosingSteps.class);
+        Object other = ClassInstanceManager.get(TestImplClass.class);
+
+        ClassInstanceManager.evict(Collections.singleton(ClosingSteps.class.getName()));
+
+        assertTrue(steps.closed);
+        assertNotSame(steps, ClassInstanceManager.get(ClosingSteps.class));
+        assertSame(other, ClassInstanceManager.get(TestImplClass.class));
+    }
+
+    public void testCreatesOneInstanceForConcurrentRequests() throws Exception {
+        final List<Object> created = new CopyOnWriteArrayList<Object>();
+        ClassInstanceManager.setClassInitializer(new ClassInitializer() {
+            public Object initialize(Class<?> classToInitialize) throws Exception {
+                Thread.sleep(20);
+                Object instance = new TestImplClass();
+                created.add(instance);
+                return instance;
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Object>> instances = executor.invokeAll(Collections.nCopies(8, new Callable<Object>() {
+            public Object call() throws Exception {
+                return ClassInstanceManager.get(TestImplClass.class);
+            }
+        }));
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(1, created.size());
+        for (Future<Object> instance : instances) {
+            assertSame(created.get(0), instance.get());
+        }
+    }
+
+    public void testRetriesAfterFailedCreation() throws Exception {
+        ClassInstanceManager.setClassInitializer(new ClassInitializer() {
+            public Object initialize(Class<?> classToInitialize) throws Exception {
+                throw new IllegalStateException("not yet");
+            }
+        });
+        try {
+            ClassInstanceManager.get(TestImplClass.class);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+        ClassInstanceManager.setClassInitializer(null);
+
+        assertTrue(ClassInstanceManager.get(TestImplClass.class) instanceof TestImplClass);
+    }
+
+    public static class ClosingSteps implements Closeable {
+        private boolean closed;
+
+        public void close() {
+            closed = true;
+        }
+    }
+}
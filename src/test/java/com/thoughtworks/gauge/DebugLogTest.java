@@ -0,0 +1,56 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.util.List;
+
+public class DebugLogTest extends TestCase {
+    private File file;
+
+    protected void setUp() throws Exception {
+        file = File.createTempFile("gauge-debug", ".log");
+    }
+
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testAppendsMessagesToTheFile() throws Exception {
+        DebugLog debugLog = new DebugLog(file);
+
+        debugLog.write("first");
+        debugLog.write("second");
+
+        List<String> lines = FileUtils.readLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith(" first"));
+        assertTrue(lines.get(1).endsWith(" second"));
+    }
+
+    public void testWritesNothingWithoutFile() throws Exception {
+        DebugLog debugLog = new DebugLog(null);
+
+        debugLog.write("ignored");
+
+        assertFalse(debugLog.enabled());
+    }
+}
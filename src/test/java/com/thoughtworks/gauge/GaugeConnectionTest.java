@@ -0,0 +1,127 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import com.thoughtworks.gauge.connection.MessageReader;
+import com.thoughtworks.gauge.connection.MessageWriter;
+import gauge.messages.Api;
+import gauge.messages.Spec;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GaugeConnectionTest extends TestCase {
+    private ServerSocket serverSocket;
+
+    protected void setUp() throws Exception {
+        serverSocket = new ServerSocket(0);
+    }
+
+    public void testResolvesStepValuesInOnePipelinedBatch() throws Exception {
+        List<String> stepTexts = new ArrayList<String>();
+        for (int i = 0; i < 600; i++) {
+            stepTexts.add("step " + i + " with <param>");
+        }
+        Thread gauge = startFakeGauge(stepTexts.size(), 0, null);
+        GaugeConnection connection = new GaugeConnection(serverSocket.getLocalPort());
+
+        List<StepValue> stepValues = connection.getStepValues(stepTexts);
+
+        assertEquals(600, stepValues.size());
+        for (int i = 0; i < stepValues.size(); i++) {
+            assertEquals("step " + i + " with {}", stepValues.get(i).getStepText());
+            assertEquals(stepTexts.get(i), stepValues.get(i).getStepAnnotationText());
+        }
+        gauge.join(5000);
+    }
+
+    public void testErrorResponseOnlyFailsThatStep() throws Exception {
+        List<String> stepTexts = Arrays.asList("first <param>", "broken <param>", "last <param>");
+        Thread gauge = startFakeGauge(stepTexts.size(), 0, "broken <param>");
+        GaugeConnection connection = new GaugeConnection(serverSocket.getLocalPort());
+
+        List<StepValue> stepValues = connection.getStepValues(stepTexts);
+
+        assertEquals("first {}", stepValues.get(0).getStepText());
+        assertEquals("", stepValues.get(1).getStepText());
+        assertEquals("last {}", stepValues.get(2).getStepText());
+        gauge.join(5000);
+    }
+
+    public void testFailsOnResponseToUnknownRequest() throws Exception {
+        List<String> stepTexts = Arrays.asList("first <param>", "last <param>");
+        Thread gauge = startFakeGauge(stepTexts.size(), 1000, null);
+        GaugeConnection connection = new GaugeConnection(serverSocket.getLocalPort());
+
+        try {
+            connection.getStepValues(stepTexts);
+            fail("expected the unknown message id to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("message id 1100"));
+        }
+        gauge.join(5000);
+    }
+
+    private Thread startFakeGauge(final int requests, final long idShift, final String failingStepText) {
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Socket socket = serverSocket.accept();
+                    MessageReader reader = new MessageReader(socket.getInputStream());
+                    MessageWriter writer = new MessageWriter(socket.getOutputStream());
+                    for (int i = 0; i < requests; i++) {
+                        Api.APIMessage request = reader.readMessage(Api.APIMessage.PARSER);
+                        String stepText = request.getStepValueRequest().getStepText();
+                        if (stepText.equals(failingStepText)) {
+                            writer.writeMessage(Api.APIMessage.newBuilder()
+                                    .setMessageType(Api.APIMessage.APIMessageType.ErrorResponse)
+                                    .setMessageId(request.getMessageId())
+                                    .setError(Api.ErrorResponse.newBuilder().setError("Step text is invalid"))
+                                    .build());
+                            continue;
+                        }
+                        Spec.ProtoStepValue stepValue = Spec.ProtoStepValue.newBuilder()
+                                .setStepValue(stepText.replace("<param>", "{}"))
+                                .setParameterizedStepValue(stepText)
+                                .addParameters("param")
+                                .build();
+                        writer.writeMessage(Api.APIMessage.newBuilder()
+                                .setMessageType(Api.APIMessage.APIMessageType.GetStepValueResponse)
+                                .setMessageId(request.getMessageId() + idShift)
+                                .setStepValueResponse(Api.GetStepValueResponse.newBuilder().setStepValue(stepValue))
+                                .build());
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    protected void tearDown() throws Exception {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import junit.framework.TestCase;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class HooksRegistryTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        HooksRegistry.setBeforeClassStepsHooks(new HashSet<Method>(Arrays.asList(
+                BaseSteps.class.getMethod("baseBefore"), ChildSteps.class.getMethod("childBefore"), OtherSteps.class.getMethod("otherBefore"))));
+        HooksRegistry.setAfterClassStepsHooks(new HashSet<Method>(Arrays.asList(
+                BaseSteps.class.getMethod("baseAfter"), ChildSteps.class.getMethod("childAfter"))));
+    }
+
+    public void testClassHooksIncludeSuperclassHooks() throws Exception {
+        assertEquals(Arrays.asList(BaseSteps.class.getMethod("baseBefore"), ChildSteps.class.getMethod("childBefore")),
+                new ArrayList<Method>(HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class)));
+        assertEquals(Arrays.asList(ChildSteps.class.getMethod("childAfter"), BaseSteps.class.getMethod("baseAfter")),
+                new ArrayList<Method>(HooksRegistry.getAfterClassStepsHooksOfClass(ChildSteps.class)));
+    }
+
+    public void testClassHooksDoNotIncludeOtherClasses() throws Exception {
+        assertEquals(Arrays.asList(BaseSteps.class.getMethod("baseBefore")),
+                new ArrayList<Method>(HooksRegistry.getBeforeClassStepsHooksOfClass(BaseSteps.class)));
+        assertTrue(HooksRegistry.getAfterClassStepsHooksOfClass(OtherSteps.class).isEmpty());
+    }
+
+    public void testClassHooksAreReturnedAsCopies() throws Exception {
+        HashSet<Method> hooks = HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class);
+
+        hooks.clear();
+
+        assertEquals(2, HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class).size());
+    }
+
+    public void testSettingHooksResetsTheIndex() throws Exception {
+        HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class);
+
+        HooksRegistry.setBeforeClassStepsHooks(new HashSet<Method>());
+
+        assertTrue(HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class).isEmpty());
+    }
+
+    public void testRegisteredHooksAreNotChangedThroughTheGivenSet() throws Exception {
+        Set<Method> hooks = new HashSet<Method>(Arrays.asList(BaseSteps.class.getMethod("baseBefore")));
+        HooksRegistry.setBeforeSpecHooks(hooks);
+
+        hooks.add(ChildSteps.class.getMethod("childBefore"));
+
+        assertEquals(1, HooksRegistry.getBeforeSpecHooks().size());
+    }
+
+    public void testSetHooksReplacesAllHooks() throws Exception {
+        HooksRegistry.setBeforeSpecHooks(new HashSet<Method>(Arrays.asList(BaseSteps.class.getMethod("baseBefore"))));
+        Map<Class<? extends Annotation>, Set<Method>> hooks = new HashMap<Class<? extends Annotation>, Set<Method>>();
+        hooks.put(AfterClassSteps.class, new HashSet<Method>(Arrays.asList(ChildSteps.class.getMethod("childAfter"))));
+
+        HooksRegistry.setHooks(hooks);
+
+        assertTrue(HooksRegistry.getBeforeSpecHooks().isEmpty());
+        assertTrue(HooksRegistry.getBeforeClassStepsHooksOfClass(ChildSteps.class).isEmpty());
+        assertEquals(Arrays.asList(ChildSteps.class.getMethod("childAfter")),
+                new ArrayList<Method>(HooksRegistry.getAfterClassStepsHooksOfClass(ChildSteps.class)));
+    }
+
+    protected void tearDown() throws Exception {
+        HooksRegistry.setHooks(new HashMap<Class<? extends Annotation>, Set<Method>>());
+    }
+
+    public static class BaseSteps {
+        @BeforeClassSteps
+        public void baseBefore() {
+        }
+
+        @AfterClassSteps
+        public void baseAfter() {
+        }
+    }
+
+    public static class ChildSteps extends BaseSteps {
+        @BeforeClassSteps
+        public void childBefore() {
+        }
+
+        @AfterClassSteps
+        public void childAfter() {
+        }
+    }
+
+    public static class OtherSteps {
+        @BeforeClassSteps
+        public void otherBefore() {
+        }
+    }
+}
@@ -0,0 +1,278 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import com.thoughtworks.gauge.connection.ConnectionEstablisher;
+import com.thoughtworks.gauge.connection.Transport;
+import com.thoughtworks.gauge.connection.TransportFactory;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class RunnerDaemonTest extends TestCase {
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private File stateFile;
+    private RecordingSession session;
+    private Thread daemon;
+
+    protected void setUp() throws Exception {
+        stateFile = File.createTempFile("gauge-daemon", ".port");
+        // The daemon writes the state file itself
+        stateFile.delete();
+        session = new RecordingSession();
+        final RunnerDaemon runnerDaemon = new RunnerDaemon(session, new ConnectionEstablisher(new StubTransportFactory(), 1000), stateFile);
+        daemon = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    runnerDaemon.run();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        daemon.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!stateFile.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        session.proceed.countDown();
+        if (daemon.isAlive()) {
+            request(RunnerDaemon.STOP).close();
+            daemon.join(5000);
+        }
+        stateFile.delete();
+    }
+
+    public void testServesRunsAndResetsStateBetweenThem() throws Exception {
+        Socket first = request(RunnerDaemon.RUN + " 6001 6002");
+        session.proceed.countDown();
+        assertEquals(RunnerDaemon.STARTED, readLine(first));
+        assertEquals(RunnerDaemon.DONE, readLine(first));
+        first.close();
+
+        Socket second = request(RunnerDaemon.RUN + " 6003 6004");
+        assertEquals(RunnerDaemon.STARTED, readLine(second));
+        assertEquals(RunnerDaemon.DONE, readLine(second));
+        second.close();
+
+        assertEquals(4, session.ports.size());
+        assertEquals(Integer.valueOf(6001), session.ports.get(0));
+        assertEquals(Integer.valueOf(6004), session.ports.get(3));
+        assertEquals(1, session.resets);
+    }
+
+    public void testSendsOutputOfTheRunToTheLauncher() throws Exception {
+        session.output = "output of a step";
+        Socket run = request(RunnerDaemon.RUN + " 6001 6002");
+        session.proceed.countDown();
+        assertEquals(RunnerDaemon.STARTED, readLine(run));
+
+        Map<String, String> output = readOutputUntilDone(run);
+        run.close();
+
+        assertEquals("output of a step" + LINE_SEPARATOR, output.get(RunnerDaemon.OUT));
+        assertEquals("error of a step" + LINE_SEPARATOR, output.get(RunnerDaemon.ERR));
+    }
+
+    public void testAnswersBusyWhileARunIsServed() throws Exception {
+        Socket first = request(RunnerDaemon.RUN + " 6001 6002");
+        assertEquals(RunnerDaemon.STARTED, readLine(first));
+
+        Socket second = request(RunnerDaemon.RUN + " 6003 6004");
+        assertEquals(RunnerDaemon.BUSY, readLine(second));
+        second.close();
+
+        session.proceed.countDown();
+        assertEquals(RunnerDaemon.DONE, readLine(first));
+        first.close();
+    }
+
+    public void testStopWaitsForTheRunInProgress() throws Exception {
+        Socket run = request(RunnerDaemon.RUN + " 6001 6002");
+        assertEquals(RunnerDaemon.STARTED, readLine(run));
+
+        request(RunnerDaemon.STOP).close();
+        Socket rejected = request(RunnerDaemon.RUN + " 6003 6004");
+        assertEquals(RunnerDaemon.BUSY, readLine(rejected));
+        rejected.close();
+        daemon.join(200);
+        assertTrue(daemon.isAlive());
+
+        session.proceed.countDown();
+        assertEquals(RunnerDaemon.DONE, readLine(run));
+        run.close();
+        daemon.join(5000);
+        assertFalse(daemon.isAlive());
+    }
+
+    public void testRejectsRequestsWithoutToken() throws Exception {
+        int port = Integer.parseInt(readState()[0]);
+
+        Socket socket = send(port, RunnerDaemon.RUN + " 6001 6002");
+
+        assertEquals("", readLine(socket));
+        socket.close();
+        send(port, "wrong-token " + RunnerDaemon.STOP).close();
+        daemon.join(200);
+        assertTrue(daemon.isAlive());
+        assertTrue(session.ports.isEmpty());
+    }
+
+    public void testStateFileIsReadableByOwnerOnly() throws Exception {
+        assertTrue(stateFile.canRead());
+        if (!System.getProperty("os.name").toLowerCase().contains("windows")) {
+            assertEquals("rw-------", permissions(stateFile));
+        }
+    }
+
+    public void testStopRemovesStateFile() throws Exception {
+        assertTrue(stateFile.exists());
+
+        request(RunnerDaemon.STOP).close();
+        daemon.join(5000);
+
+        assertFalse(daemon.isAlive());
+        assertFalse(stateFile.exists());
+    }
+
+    private Socket request(String line) throws Exception {
+        String[] state = readState();
+        return send(Integer.parseInt(state[0]), state[1] + " " + line);
+    }
+
+    private String[] readState() throws Exception {
+        BufferedReader reader = new BufferedReader(new FileReader(stateFile));
+        try {
+            return reader.readLine().split(" ");
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Socket send(int port, String line) throws Exception {
+        Socket socket = new Socket("127.0.0.1", port);
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+        writer.write(line + "\n");
+        writer.flush();
+        return socket;
+    }
+
+    // Reads byte by byte so that nothing of the next line is buffered away
+    private String readLine(Socket socket) throws Exception {
+        InputStream inputStream = socket.getInputStream();
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = inputStream.read()) != -1 && c != '\n') {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    // Collects the output frames of a run by channel, up to the line that ends the run
+    private Map<String, String> readOutputUntilDone(Socket socket) throws Exception {
+        Map<String, String> output = new HashMap<String, String>();
+        String line;
+        while (!(line = readLine(socket)).equals(RunnerDaemon.DONE)) {
+            String[] frame = line.split(" ");
+            assertEquals(2, frame.length);
+            byte[] bytes = new byte[Integer.parseInt(frame[1])];
+            new DataInputStream(socket.getInputStream()).readFully(bytes);
+            String previous = output.containsKey(frame[0]) ? output.get(frame[0]) : "";
+            output.put(frame[0], previous + new String(bytes));
+        }
+        return output;
+    }
+
+    private String permissions(File file) throws Exception {
+        Process process = new ProcessBuilder("ls", "-l", file.getPath()).start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        try {
+            return reader.readLine().substring(1, 10);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static class RecordingSession implements RunnerDaemon.Session {
+        private final List<Integer> ports = new ArrayList<Integer>();
+        private final CountDownLatch proceed = new CountDownLatch(1);
+        private int resets;
+        private String output;
+
+        public void run(Transport gaugeTransport, Transport apiTransport) throws Exception {
+            ports.add(gaugeTransport.getPort());
+            ports.add(apiTransport.getPort());
+            if (output != null) {
+                System.out.println(output);
+                System.err.println("error of a step");
+            }
+            proceed.await(5, TimeUnit.SECONDS);
+        }
+
+        public void reset() {
+            resets++;
+        }
+    }
+
+    private static class StubTransportFactory extends TransportFactory {
+        public StubTransportFactory() {
+            super(TransportFactory.SOCKET, 0, 0);
+        }
+
+        public Transport connect(String host, final int port) {
+            return new Transport() {
+                public InputStream getInputStream() {
+                    return null;
+                }
+
+                public OutputStream getOutputStream() {
+                    return null;
+                }
+
+                public int getPort() {
+                    return port;
+                }
+
+                public boolean isConnected() {
+                    return false;
+                }
+
+                public void close() {
+                }
+            };
+        }
+    }
+}
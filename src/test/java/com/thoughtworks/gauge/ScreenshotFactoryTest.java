@@ -0,0 +1,135 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+public class ScreenshotFactoryTest extends TestCase {
+
+    public void testNoScreenshotWhenDisabled() throws Exception {
+        Future<byte[]> screenshot = new ScreenshotFactory(provider(image(10, 10)), settings(false, "png", 1, -1, 0, 0, 0)).takeScreenshot();
+
+        assertTrue(screenshot.isDone());
+        assertEquals(0, screenshot.get().length);
+    }
+
+    public void testEncodesInConfiguredFormat() throws Exception {
+        byte[] bytes = ScreenshotFactory.encode(image(40, 20), settings(true, "png", 1, -1, 0, 0, 0));
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertEquals(40, decoded.getWidth());
+        assertEquals(20, decoded.getHeight());
+    }
+
+    public void testScalesDownAndCompresses() throws Exception {
+        ScreenshotFactory.Settings settings = settings(true, "jpg", 0.5, 0.3f, 0, 0, 0);
+
+        byte[] bytes = ScreenshotFactory.encode(image(40, 20), settings);
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertEquals(20, decoded.getWidth());
+        assertEquals(10, decoded.getHeight());
+        assertEquals((byte) 0xFF, bytes[0]);
+        assertEquals((byte) 0xD8, bytes[1]);
+    }
+
+    public void testUsesProviderImage() throws Exception {
+        byte[] bytes = new ScreenshotFactory(provider(image(30, 15)), settings(true, "png", 1, -1, 0, 0, 0)).takeScreenshot().get();
+
+        assertEquals(30, ImageIO.read(new ByteArrayInputStream(bytes)).getWidth());
+    }
+
+    public void testCapturesOnTheCallingThread() throws Exception {
+        final Thread[] capturedOn = new Thread[1];
+        ScreenshotProvider provider = new ScreenshotProvider() {
+            public BufferedImage takeScreenshot() {
+                capturedOn[0] = Thread.currentThread();
+                return image(10, 10);
+            }
+        };
+
+        new ScreenshotFactory(provider, settings(true, "png", 1, -1, 0, 0, 0)).takeScreenshot();
+
+        assertSame(Thread.currentThread(), capturedOn[0]);
+    }
+
+    public void testNoScreenshotWhenProviderHasNone() throws Exception {
+        assertEquals(0, new ScreenshotFactory(provider(null), settings(true, "png", 1, -1, 0, 0, 0)).takeScreenshot().get().length);
+    }
+
+    public void testFitsWithinMaxResolution() throws Exception {
+        byte[] bytes = ScreenshotFactory.encode(image(400, 100), settings(true, "png", 1, -1, 200, 80, 0));
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertEquals(200, decoded.getWidth());
+        assertEquals(50, decoded.getHeight());
+    }
+
+    public void testShrinksToMaxBytes() throws Exception {
+        BufferedImage image = noise(400, 400);
+        assertTrue(ScreenshotFactory.encode(image, settings(true, "png", 1, -1, 0, 0, 0)).length > 20000);
+
+        assertTrue(ScreenshotFactory.encode(image, settings(true, "png", 1, -1, 0, 0, 20000)).length <= 20000);
+        assertTrue(ScreenshotFactory.encode(image, settings(true, "jpg", 1, -1, 0, 0, 20000)).length <= 20000);
+    }
+
+    public void testWritesImagesWithAlphaAsJpeg() throws Exception {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+
+        byte[] bytes = ScreenshotFactory.encode(image, settings(true, "jpg", 1, -1, 0, 0, 0));
+
+        assertEquals(10, ImageIO.read(new ByteArrayInputStream(bytes)).getWidth());
+    }
+
+    private ScreenshotFactory.Settings settings(boolean enabled, String format, double scale, float quality, int maxWidth, int maxHeight, int maxBytes) {
+        return new ScreenshotFactory.Settings(enabled, format, scale, quality, maxWidth, maxHeight, maxBytes);
+    }
+
+    private ScreenshotProvider provider(final BufferedImage image) {
+        return new ScreenshotProvider() {
+            public BufferedImage takeScreenshot() {
+                return image;
+            }
+        };
+    }
+
+    private BufferedImage noise(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, x % height, 0xFF0000);
+        }
+        return image;
+    }
+}
@@ -21,6 +21,7 @@ import junit.framework.TestCase;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -114,6 +115,23 @@ public class StepRegistryTest extends TestCase {
         assertEquals(false, StepRegistry.hasAlias(stepValue1.getStepText()));
     }
 
+    public void testAliasesAreUpdatedWhenAnAliasIsRemoved() throws Exception {
+        StepRegistry.remove(aliasStep2.getStepText());
+
+        assertEquals(1, StepRegistry.getAllAliasAnnotationTextsFor(aliasStep1.getStepText()).size());
+        assertFalse(StepRegistry.hasAlias(aliasStep1.getStepText()));
+        assertFalse(StepRegistry.getAllStepAnnotationTexts().contains(aliasStep2.getStepAnnotationText()));
+        assertTrue(StepRegistry.getAllAliasAnnotationTextsFor(aliasStep2.getStepText()).isEmpty());
+    }
+
+    public void testSetStepImplementationsReplacesAllSteps() throws Exception {
+        StepRegistry.setStepImplementations(Arrays.asList(stepValue2), Arrays.asList(method1));
+
+        assertFalse(StepRegistry.contains(stepValue1.getStepText()));
+        assertEquals(method1, StepRegistry.get(stepValue2.getStepText()));
+        assertEquals(Arrays.asList(stepValue2.getStepAnnotationText()), StepRegistry.getAllStepAnnotationTexts());
+    }
+
     protected void tearDown() throws Exception {
         StepRegistry.remove(stepValue1.getStepText());
         StepRegistry.remove(stepValue1.getStepText());
@@ -0,0 +1,58 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class StepTextParserTest extends TestCase {
+    private final StepTextParser parser = new StepTextParser();
+
+    // Expected values follow gauge core, which puts every parameter in angle brackets in the parameterized text
+    public void testStepWithoutParameters() throws Exception {
+        assertEquals(new StepValue("hello world", "hello world", new ArrayList<String>()), parser.parse("hello world"));
+    }
+
+    public void testStepWithDynamicParameters() throws Exception {
+        assertEquals(new StepValue("Login as {} with {}", "Login as <user> with <pwd>", Arrays.asList("user", "pwd")),
+                parser.parse("Login as <user> with <pwd>"));
+    }
+
+    public void testStepWithStaticAndSpecialParameters() throws Exception {
+        assertEquals(new StepValue("Say {} to {} from {}", "Say <hello there> to <name> from <file:/tmp/a.txt>", Arrays.asList("hello there", "name", "file:/tmp/a.txt")),
+                parser.parse("Say \"hello there\" to <name> from <file:/tmp/a.txt>"));
+    }
+
+    public void testStepTextIsTrimmed() throws Exception {
+        assertEquals(new StepValue("a step with {} and {}", "a step with <param0> and <table>", Arrays.asList("param0", "table")),
+                parser.parse("  a step with <param0> and <table> "));
+    }
+
+    public void testAmbiguousTextsAreLeftToGauge() throws Exception {
+        assertNull(parser.parse("escaped \\\"quote\\\""));
+        assertNull(parser.parse("unclosed <param"));
+        assertNull(parser.parse("unclosed \"value"));
+        assertNull(parser.parse("stray > bracket"));
+        assertNull(parser.parse("literal {} braces"));
+        assertNull(parser.parse("empty <> parameter"));
+        assertNull(parser.parse("nested <a \"b\">"));
+        assertNull(parser.parse(null));
+    }
+}
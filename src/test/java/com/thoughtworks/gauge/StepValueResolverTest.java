@@ -0,0 +1,124 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import com.thoughtworks.gauge.connection.Transport;
+import junit.framework.TestCase;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StepValueResolverTest extends TestCase {
+
+    public void testSimpleStepsAreResolvedLocallyAndCheckedAgainstGauge() throws Exception {
+        FakeGaugeConnection gauge = new FakeGaugeConnection(false);
+
+        List<StepValue> stepValues = new StepValueResolver(gauge).resolve(Arrays.asList("hello <world>", "plain step"));
+
+        assertEquals(1, gauge.requests.size());
+        assertEquals(Arrays.asList("hello <world>", "plain step"), gauge.requests.get(0));
+        assertEquals(new StepValue("hello {}", "hello <world>", Arrays.asList("world")), stepValues.get(0));
+        assertEquals(new StepValue("plain step", "plain step", new ArrayList<String>()), stepValues.get(1));
+    }
+
+    public void testValidationSampleIsLimited() throws Exception {
+        FakeGaugeConnection gauge = new FakeGaugeConnection(false);
+
+        new StepValueResolver(gauge).resolve(Arrays.asList("a", "b", "c", "d", "e", "f", "g"));
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), gauge.requests.get(0));
+    }
+
+    public void testEverythingIsResolvedByGaugeWhenSampleOfParsedStepsDiffers() throws Exception {
+        FakeGaugeConnection gauge = new FakeGaugeConnection(true);
+
+        List<StepValue> stepValues = new StepValueResolver(gauge).resolve(Arrays.asList("hello <world>", "plain step"));
+
+        assertEquals(2, gauge.requests.size());
+        assertEquals("gauge:plain step", stepValues.get(1).getStepText());
+    }
+
+    public void testAmbiguousStepsAreResolvedByGaugeAlongWithValidationSample() throws Exception {
+        FakeGaugeConnection gauge = new FakeGaugeConnection(false);
+
+        List<StepValue> stepValues = new StepValueResolver(gauge).resolve(Arrays.asList("hello <world>", "escaped \\<step\\>"));
+
+        assertEquals(1, gauge.requests.size());
+        assertEquals(Arrays.asList("escaped \\<step\\>", "hello <world>"), gauge.requests.get(0));
+        assertEquals("gauge:escaped \\<step\\>", stepValues.get(1).getStepText());
+        assertEquals("hello {}", stepValues.get(0).getStepText());
+    }
+
+    public void testEverythingIsResolvedByGaugeWhenSampleDiffers() throws Exception {
+        FakeGaugeConnection gauge = new FakeGaugeConnection(true);
+
+        List<StepValue> stepValues = new StepValueResolver(gauge).resolve(Arrays.asList("hello <world>", "escaped \\<step\\>"));
+
+        assertEquals(2, gauge.requests.size());
+        assertEquals(Arrays.asList("hello <world>", "escaped \\<step\\>"), gauge.requests.get(1));
+        assertEquals("gauge:hello <world>", stepValues.get(0).getStepText());
+    }
+
+    private class FakeGaugeConnection extends GaugeConnection {
+        private final List<List<String>> requests = new ArrayList<List<String>>();
+        private final boolean disagree;
+
+        public FakeGaugeConnection(boolean disagree) {
+            super(new NoTransport());
+            this.disagree = disagree;
+        }
+
+        public List<StepValue> getStepValues(List<String> stepTexts) {
+            requests.add(stepTexts);
+            List<StepValue> stepValues = new ArrayList<StepValue>();
+            for (String stepText : stepTexts) {
+                StepValue local = new StepTextParser().parse(stepText);
+                if (local != null && !disagree) {
+                    stepValues.add(local);
+                } else {
+                    stepValues.add(new StepValue("gauge:" + stepText, stepText, new ArrayList<String>()));
+                }
+            }
+            return stepValues;
+        }
+    }
+
+    private class NoTransport implements Transport {
+        public InputStream getInputStream() {
+            return null;
+        }
+
+        public OutputStream getOutputStream() {
+            return null;
+        }
+
+        public int getPort() {
+            return 0;
+        }
+
+        public boolean isConnected() {
+            return false;
+        }
+
+        public void close() {
+        }
+    }
+}
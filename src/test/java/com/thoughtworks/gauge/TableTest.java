@@ -0,0 +1,113 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TableTest extends TestCase {
+
+    public void testLooksUpCellsByColumnName() throws Exception {
+        Table table = new Table(Arrays.asList("name", "age", "member"));
+        table.addRow(Arrays.asList("john", "30", "true"));
+        table.addRow(Arrays.asList("jane", "25", "false"));
+
+        TableRow row = table.getTableRow(1);
+
+        assertEquals("jane", row.getCell("name"));
+        assertEquals(25, row.getInt("age"));
+        assertEquals(25L, row.getLong("age"));
+        assertEquals(25.0, row.getDouble("age"));
+        assertFalse(row.getBoolean("member"));
+        assertEquals("false", row.getCell(2));
+        assertEquals(1, table.getColumnIndex("age"));
+        assertEquals(-1, table.getColumnIndex("missing"));
+    }
+
+    public void testIteratesRows() throws Exception {
+        Table table = new Table(Arrays.asList("id"));
+        table.addRow(Arrays.asList("1"));
+        table.addRow(Arrays.asList("2"));
+
+        List<Integer> ids = new ArrayList<Integer>();
+        for (TableRow row : table) {
+            ids.add(row.getInt("id"));
+        }
+
+        assertEquals(Arrays.asList(1, 2), ids);
+        assertEquals(2, table.getRowCount());
+    }
+
+    public void testColumnValues() throws Exception {
+        Table table = new Table(Arrays.asList("a", "b"));
+        table.addRow(Arrays.asList("1", "2"));
+        table.addRow(Arrays.asList("3", "4"));
+
+        assertEquals(Arrays.asList("2", "4"), table.getColumnValues("b"));
+    }
+
+    public void testUnknownColumnIsReported() throws Exception {
+        Table table = new Table(Arrays.asList("a"));
+        table.addRow(Arrays.asList("1"));
+
+        try {
+            table.getTableRow(0).getCell("b");
+            fail("expected unknown column");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("b"));
+        }
+    }
+
+    public void testAddingRowsToWrappedRowsCopiesThem() throws Exception {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        rows.add(Arrays.asList("1"));
+        Table table = new Table(Arrays.asList("a"), Collections.unmodifiableList(rows));
+
+        table.addRow(Arrays.asList("2"));
+
+        assertEquals(2, table.getRowCount());
+        assertEquals(1, rows.size());
+    }
+
+    public void testRowsOfWrappedTableCanBeChanged() throws Exception {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        rows.add(Collections.unmodifiableList(Arrays.asList("1", "2")));
+        Table table = new Table(Collections.unmodifiableList(Arrays.asList("a", "b")), Collections.unmodifiableList(rows));
+
+        table.getRows().get(0).set(1, "changed");
+        table.getRows().add(new ArrayList<String>(Arrays.asList("3", "4")));
+
+        assertEquals("changed", table.getTableRow(0).getCell("b"));
+        assertEquals(2, table.getRowCount());
+        assertEquals(Arrays.asList("1", "2"), rows.get(0));
+    }
+
+    public void testColumnLookupsFollowChangedColumnNames() throws Exception {
+        Table table = new Table(Collections.unmodifiableList(Arrays.asList("a", "b")), Collections.<List<String>>emptyList());
+        assertEquals(1, table.getColumnIndex("b"));
+
+        table.getColumnNames().set(1, "renamed");
+
+        assertEquals(-1, table.getColumnIndex("b"));
+        assertEquals(1, table.getColumnIndex("renamed"));
+    }
+}
@@ -0,0 +1,97 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+
+public class ConnectionEstablisherTest extends TestCase {
+
+    public void testRetriesUntilGaugeAcceptsConnection() throws Exception {
+        FlakyTransportFactory transportFactory = new FlakyTransportFactory(3);
+        ConnectionEstablisher establisher = new ConnectionEstablisher(transportFactory, 5000, 1, 8);
+
+        Transport transport = establisher.connect("localhost", 1234);
+
+        assertSame(transportFactory.transport, transport);
+        assertEquals(4, transportFactory.attempts);
+        assertEquals(4, establisher.getLastConnectAttempts());
+        assertTrue(establisher.getLastConnectDurationMillis() >= 0);
+    }
+
+    public void testGivesUpAfterDeadline() throws Exception {
+        FlakyTransportFactory transportFactory = new FlakyTransportFactory(Integer.MAX_VALUE);
+        ConnectionEstablisher establisher = new ConnectionEstablisher(transportFactory, 100, 5, 20);
+
+        long start = System.currentTimeMillis();
+        try {
+            establisher.connect("localhost", 1234);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof ConnectException);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("took " + elapsed + " ms", elapsed >= 100 && elapsed < 2000);
+        assertTrue(transportFactory.attempts > 1);
+        assertTrue(transportFactory.attempts < 100);
+    }
+
+    private class FlakyTransportFactory extends TransportFactory {
+        private final int failures;
+        private int attempts;
+        private final Transport transport = new StubTransport();
+
+        public FlakyTransportFactory(int failures) {
+            super(TransportFactory.SOCKET, 0, 0);
+            this.failures = failures;
+        }
+
+        public Transport connect(String host, int port) throws IOException {
+            attempts++;
+            if (attempts <= failures) {
+                throw new ConnectException("Connection refused");
+            }
+            return transport;
+        }
+    }
+
+    private class StubTransport implements Transport {
+        public InputStream getInputStream() {
+            return null;
+        }
+
+        public OutputStream getOutputStream() {
+            return null;
+        }
+
+        public int getPort() {
+            return 1234;
+        }
+
+        public boolean isConnected() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+}
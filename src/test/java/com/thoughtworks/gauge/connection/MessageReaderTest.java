@@ -0,0 +1,95 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import com.google.protobuf.ByteString;
+import gauge.messages.Messages;
+import gauge.messages.Spec;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+
+public class MessageReaderTest extends TestCase {
+
+    public void testReadsConsecutiveMessages() throws Exception {
+        Messages.Message first = executeStepMessage(1, "first step");
+        Messages.Message second = executeStepMessage(2, "second step");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        first.writeDelimitedTo(stream);
+        second.writeDelimitedTo(stream);
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(stream.toByteArray()));
+
+        assertEquals(first, reader.readMessage(Messages.Message.PARSER));
+        assertEquals(second, reader.readMessage(Messages.Message.PARSER));
+    }
+
+    public void testReadsMessageLargerThanInitialBuffer() throws Exception {
+        byte[] screenshot = new byte[3 * 1024 * 1024];
+        for (int i = 0; i < screenshot.length; i++) {
+            screenshot[i] = (byte) i;
+        }
+        Messages.Message large = Messages.Message.newBuilder()
+                .setMessageId(3)
+                .setMessageType(Messages.Message.MessageType.ExecutionStatusResponse)
+                .setExecutionStatusResponse(Messages.ExecutionStatusResponse.newBuilder()
+                        .setExecutionResult(Spec.ProtoExecutionResult.newBuilder().setFailed(true).setExecutionTime(1).setScreenShot(ByteString.copyFrom(screenshot))))
+                .build();
+        Messages.Message small = executeStepMessage(4, "after large");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        large.writeDelimitedTo(stream);
+        small.writeDelimitedTo(stream);
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(stream.toByteArray()));
+
+        assertEquals(large, reader.readMessage(Messages.Message.PARSER));
+        assertEquals(small, reader.readMessage(Messages.Message.PARSER));
+    }
+
+    public void testThrowsEOFWhenStreamIsClosed() throws Exception {
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(new byte[0]));
+        try {
+            reader.readMessage(Messages.Message.PARSER);
+            fail("Expected EOFException");
+        } catch (EOFException expected) {
+        }
+    }
+
+    public void testThrowsEOFOnTruncatedMessage() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        executeStepMessage(5, "truncated").writeDelimitedTo(stream);
+        byte[] bytes = stream.toByteArray();
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes, 0, bytes.length - 3));
+        try {
+            reader.readMessage(Messages.Message.PARSER);
+            fail("Expected EOFException");
+        } catch (EOFException expected) {
+        }
+    }
+
+    private Messages.Message executeStepMessage(long id, String stepText) {
+        return Messages.Message.newBuilder()
+                .setMessageId(id)
+                .setMessageType(Messages.Message.MessageType.ExecuteStep)
+                .setExecuteStepRequest(Messages.ExecuteStepRequest.newBuilder().setActualStepText(stepText).setParsedStepText(stepText))
+                .build();
+    }
+}
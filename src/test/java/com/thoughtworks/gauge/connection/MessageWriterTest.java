@@ -0,0 +1,73 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import gauge.messages.Api;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class MessageWriterTest extends TestCase {
+
+    public void testWritesLengthDelimitedMessages() throws Exception {
+        Api.APIMessage first = stepValueRequest(1, "first step <a>");
+        Api.APIMessage second = stepValueRequest(2, "second step");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(stream);
+
+        writer.writeMessage(first);
+        writer.writeMessage(second);
+
+        ByteArrayInputStream written = new ByteArrayInputStream(stream.toByteArray());
+        assertEquals(first, Api.APIMessage.parseDelimitedFrom(written));
+        assertEquals(second, Api.APIMessage.parseDelimitedFrom(written));
+        assertEquals(0, written.available());
+    }
+
+    public void testWritesSmallMessageInSingleWrite() throws Exception {
+        CountingOutputStream stream = new CountingOutputStream();
+        MessageWriter writer = new MessageWriter(stream);
+
+        writer.writeMessage(stepValueRequest(3, "a step"));
+
+        assertEquals(1, stream.writes);
+    }
+
+    private Api.APIMessage stepValueRequest(long id, String stepText) {
+        return Api.APIMessage.newBuilder()
+                .setMessageType(Api.APIMessage.APIMessageType.GetStepValueRequest)
+                .setMessageId(id)
+                .setStepValueRequest(Api.GetStepValueRequest.newBuilder().setStepText(stepText))
+                .build();
+    }
+
+    private class CountingOutputStream extends OutputStream {
+        private int writes;
+
+        public void write(int b) throws IOException {
+            writes++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            writes++;
+        }
+    }
+}
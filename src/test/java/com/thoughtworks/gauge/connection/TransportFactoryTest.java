@@ -0,0 +1,95 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.connection;
+
+import gauge.messages.Messages;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+public class TransportFactoryTest extends TestCase {
+    private ServerSocket serverSocket;
+
+    protected void setUp() throws Exception {
+        serverSocket = new ServerSocket(0);
+    }
+
+    public void testSocketTransportRoundTrip() throws Exception {
+        assertRoundTrip(new TransportFactory(TransportFactory.SOCKET, 0, 0));
+    }
+
+    public void testNioTransportRoundTrip() throws Exception {
+        assertRoundTrip(new TransportFactory("NIO", 128 * 1024, 128 * 1024));
+    }
+
+    public void testUnknownTransportIsRejected() throws Exception {
+        try {
+            new TransportFactory("carrier-pigeon", 0, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private void assertRoundTrip(TransportFactory factory) throws Exception {
+        Thread echoServer = startEchoServer(3);
+        Transport transport = factory.connect("localhost", serverSocket.getLocalPort());
+        MessageWriter writer = new MessageWriter(transport.getOutputStream());
+        MessageReader reader = new MessageReader(transport.getInputStream());
+
+        assertTrue(transport.isConnected());
+        assertEquals(serverSocket.getLocalPort(), transport.getPort());
+        for (int i = 0; i < 3; i++) {
+            Messages.Message message = Messages.Message.newBuilder()
+                    .setMessageId(i)
+                    .setMessageType(Messages.Message.MessageType.StepNamesRequest)
+                    .build();
+            writer.writeMessage(message);
+            assertEquals(message, reader.readMessage(Messages.Message.PARSER));
+        }
+
+        transport.close();
+        assertFalse(transport.isConnected());
+        echoServer.join(5000);
+    }
+
+    private Thread startEchoServer(final int messages) {
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Socket socket = serverSocket.accept();
+                    MessageReader reader = new MessageReader(socket.getInputStream());
+                    MessageWriter writer = new MessageWriter(socket.getOutputStream());
+                    for (int i = 0; i < messages; i++) {
+                        writer.writeMessage(reader.readMessage(Messages.Message.PARSER));
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    protected void tearDown() throws Exception {
+        serverSocket.close();
+    }
+}
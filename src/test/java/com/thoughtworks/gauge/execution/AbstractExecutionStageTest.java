@@ -1,6 +1,7 @@
 package com.thoughtworks.gauge.execution;
 
 import com.google.protobuf.ByteString;
+import gauge.messages.Messages;
 import gauge.messages.Spec;
 import junit.framework.TestCase;
 
@@ -9,7 +10,7 @@ public class AbstractExecutionStageTest extends TestCase {
     public void testMergingSimpleResultsBothPassing() throws Exception {
         Spec.ProtoExecutionResult previous = Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(1000).build();
         Spec.ProtoExecutionResult current = Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(1100).build();
-        Spec.ProtoExecutionResult result = new TestExecutionStage().mergeExecResults(previous, current);
+        Spec.ProtoExecutionResult result = merge(previous, current);
         assertFalse(result.getFailed());
         assertEquals(2100, result.getExecutionTime());
     }
@@ -28,7 +29,7 @@ public class AbstractExecutionStageTest extends TestCase {
                                                                                     setStackTrace("Previous stacktrace").
                                                                                     setScreenShot(screenShot).build();
         Spec.ProtoExecutionResult current = Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(1100).build();
-        Spec.ProtoExecutionResult result = new TestExecutionStage().mergeExecResults(previous, current);
+        Spec.ProtoExecutionResult result = merge(previous, current);
 
         assertTrue(result.getFailed());
         assertEquals(1200, result.getExecutionTime());
@@ -51,7 +52,7 @@ public class AbstractExecutionStageTest extends TestCase {
                 setErrorMessage("current failed").
                 setStackTrace("current stacktrace").
                 setScreenShot(screenShot).build();
-        Spec.ProtoExecutionResult result = new TestExecutionStage().mergeExecResults(previous, current);
+        Spec.ProtoExecutionResult result = merge(previous, current);
 
         assertTrue(result.getFailed());
         assertEquals(200, result.getExecutionTime());
@@ -80,7 +81,7 @@ public class AbstractExecutionStageTest extends TestCase {
                 setErrorMessage("current failed").
                 setStackTrace("current stacktrace").
                 setScreenShot(screenShotCurrent).build();
-        Spec.ProtoExecutionResult result = new TestExecutionStage().mergeExecResults(previous, current);
+        Spec.ProtoExecutionResult result = merge(previous, current);
 
         assertTrue(result.getFailed());
         assertEquals(2003, result.getExecutionTime());
@@ -92,17 +93,32 @@ public class AbstractExecutionStageTest extends TestCase {
 
 
 
+    // Runs a stage for each result, the way a pipeline combines the results of its stages
+    private Spec.ProtoExecutionResult merge(Spec.ProtoExecutionResult previous, Spec.ProtoExecutionResult current) {
+        ExecutionPipeline pipeline = new ExecutionPipeline(new TestExecutionStage(previous));
+        pipeline.addStages(new TestExecutionStage(current));
+        return pipeline.start(new ExecutionContext(Messages.ExecuteStepRequest.newBuilder().setParsedStepText("foo").setActualStepText("foo").build()));
+    }
+
     private class TestExecutionStage extends AbstractExecutionStage {
+        private final Spec.ProtoExecutionResult result;
+        private ExecutionStage next;
+
+        TestExecutionStage(Spec.ProtoExecutionResult result) {
+            this.result = result;
+        }
+
         protected ExecutionStage next() {
-            return null;
+            return next;
         }
 
         public void setNextStage(ExecutionStage stage) {
-
+            this.next = stage;
         }
 
-        public Spec.ProtoExecutionResult execute(Spec.ProtoExecutionResult result) {
-            return null;
+        public void execute(ExecutionContext context) {
+            context.add(result);
+            executeNext(context);
         }
     }
-}
\ No newline at end of file
+}
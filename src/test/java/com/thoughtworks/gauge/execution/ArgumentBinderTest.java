@@ -0,0 +1,74 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.thoughtworks.gauge.Table;
+import gauge.messages.Spec;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+public class ArgumentBinderTest extends TestCase {
+
+    public void testConvertsEachParameterForItsSlot() throws Exception {
+        Method method = getClass().getMethod("step", int.class, Boolean.class, double.class, String.class, Table.class);
+        Spec.ProtoTable protoTable = Spec.ProtoTable.newBuilder()
+                .setHeaders(Spec.ProtoTableRow.newBuilder().addCells("name"))
+                .addRows(Spec.ProtoTableRow.newBuilder().addCells("gauge"))
+                .build();
+        List<Spec.Parameter> parameters = Arrays.asList(parameter("12"), parameter("true"), parameter("2.5"), parameter("text"),
+                Spec.Parameter.newBuilder().setParameterType(Spec.Parameter.ParameterType.Table).setTable(protoTable).build());
+
+        Object[] arguments = ArgumentBinder.forMethod(method).bind(parameters);
+
+        assertEquals(12, arguments[0]);
+        assertEquals(true, arguments[1]);
+        assertEquals(2.5, arguments[2]);
+        assertEquals("text", arguments[3]);
+        assertEquals(Arrays.asList("name"), ((Table) arguments[4]).getColumnNames());
+        assertEquals(1, ((Table) arguments[4]).getRows().size());
+    }
+
+    public void testBinderIsBuiltOncePerMethod() throws Exception {
+        Method method = getClass().getMethod("step", int.class, Boolean.class, double.class, String.class, Table.class);
+
+        assertSame(ArgumentBinder.forMethod(method), ArgumentBinder.forMethod(method));
+    }
+
+    public void testExtraParametersAreNotConverted() throws Exception {
+        Method method = getClass().getMethod("step", long.class);
+
+        Object[] arguments = ArgumentBinder.forMethod(method).bind(Arrays.asList(parameter("5"), parameter("extra")));
+
+        assertEquals(2, arguments.length);
+        assertEquals(5L, arguments[0]);
+        assertNull(arguments[1]);
+    }
+
+    private Spec.Parameter parameter(String value) {
+        return Spec.Parameter.newBuilder().setValue(value).setParameterType(Spec.Parameter.ParameterType.Static).build();
+    }
+
+    public void step(int number, Boolean flag, double decimal, String text, Table table) {
+    }
+
+    public void step(long number) {
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.google.protobuf.ByteString;
+import com.thoughtworks.gauge.ClassInstanceManager;
+import gauge.messages.Messages;
+import gauge.messages.Spec;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+public class ExecutionContextTest extends TestCase {
+
+    public void testKeepsDetailsOfFirstFailure() throws Exception {
+        ExecutionContext context = new ExecutionContext(request("a step"));
+        context.add(Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(10).build());
+        context.add(failure("first", 20));
+        context.add(failure("second", 30));
+
+        Spec.ProtoExecutionResult result = context.toResult();
+
+        assertTrue(result.getFailed());
+        assertEquals(60, result.getExecutionTime());
+        assertEquals("first", result.getErrorMessage());
+        assertEquals("first stacktrace", result.getStackTrace());
+        assertEquals(ByteString.copyFromUtf8("first"), result.getScreenShot());
+        assertFalse(result.getRecoverableError());
+    }
+
+    public void testPassingResult() throws Exception {
+        ExecutionContext context = new ExecutionContext(request("a step"));
+        context.add(Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(5).build());
+
+        Spec.ProtoExecutionResult result = context.toResult();
+
+        assertFalse(result.getFailed());
+        assertEquals(5, result.getExecutionTime());
+        assertFalse(result.hasErrorMessage());
+    }
+
+    public void testPipelineIsReusedAcrossExecutions() throws Exception {
+        ClassInstanceManager.clearCache();
+        Method step = RecordingSteps.class.getMethod("say", String.class);
+        ExecutionPipeline pipeline = new ExecutionPipeline(new HookExecutionStage(new HashSet<Method>(Arrays.asList(RecordingSteps.class.getMethod("before"))), RecordingSteps.class));
+        pipeline.addStages(new StepExecutionStage(step));
+
+        assertFalse(pipeline.start(new ExecutionContext(request("hello"))).getFailed());
+        assertFalse(pipeline.start(new ExecutionContext(request("world"))).getFailed());
+
+        RecordingSteps steps = (RecordingSteps) ClassInstanceManager.get(RecordingSteps.class);
+        assertEquals(Arrays.asList("before", "hello", "before", "world"), steps.calls);
+    }
+
+    public void testStepIsSkippedWhenHookFails() throws Exception {
+        ClassInstanceManager.clearCache();
+        ExecutionPipeline pipeline = new ExecutionPipeline(new HookExecutionStage(new HashSet<Method>(Arrays.asList(RecordingSteps.class.getMethod("failingHook"))), RecordingSteps.class));
+        pipeline.addStages(new StepExecutionStage(RecordingSteps.class.getMethod("say", String.class)));
+
+        Spec.ProtoExecutionResult result = pipeline.start(new ExecutionContext(request("hello")));
+
+        assertTrue(result.getFailed());
+        assertTrue(result.getErrorMessage().contains("hook failed"));
+        assertTrue(((RecordingSteps) ClassInstanceManager.get(RecordingSteps.class)).calls.isEmpty());
+    }
+
+    public void testRecordsTimePerStage() throws Exception {
+        ClassInstanceManager.clearCache();
+        ExecutionPipeline pipeline = new ExecutionPipeline(new HookExecutionStage(new HashSet<Method>(Arrays.asList(RecordingSteps.class.getMethod("before"))), RecordingSteps.class, ExecutionTimings.Stage.BEFORE_CLASS_HOOKS));
+        pipeline.addStages(new StepExecutionStage(RecordingSteps.class.getMethod("say", String.class)));
+        ExecutionContext context = new ExecutionContext(request("hello"));
+
+        Spec.ProtoExecutionResult result = pipeline.start(context);
+
+        ExecutionTimings timings = context.getTimings();
+        assertTrue(timings.getNanos(ExecutionTimings.Stage.BEFORE_CLASS_HOOKS) > 0);
+        assertTrue(timings.getNanos(ExecutionTimings.Stage.ARGUMENT_CONVERSION) > 0);
+        assertTrue(timings.getNanos(ExecutionTimings.Stage.STEP) > 0);
+        assertEquals(0, timings.getNanos(ExecutionTimings.Stage.AFTER_CLASS_HOOKS));
+        assertEquals(timings.getTotalMillis(), result.getExecutionTime());
+    }
+
+    public void testTimingsAreSummedBeforeRounding() throws Exception {
+        ExecutionContext context = new ExecutionContext(request("a step"));
+        context.getTimings().add(ExecutionTimings.Stage.BEFORE_CLASS_HOOKS, 600000);
+        context.getTimings().add(ExecutionTimings.Stage.STEP, 600000);
+        context.add(Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(2).build());
+
+        assertEquals(1200000, context.getTimings().getTotalNanos());
+        assertEquals(3, context.toResult().getExecutionTime());
+    }
+
+    public void testWaitsForScreenshotOfFirstFailureWhenBuildingResult() throws Exception {
+        FutureTask<byte[]> screenshot = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                return "screen".getBytes();
+            }
+        });
+        ExecutionContext context = new ExecutionContext(request("a step"));
+        context.setPendingScreenshot(screenshot);
+        context.addTimed(Spec.ProtoExecutionResult.newBuilder().setFailed(true).setExecutionTime(1).setErrorMessage("failed").build());
+        screenshot.run();
+
+        Spec.ProtoExecutionResult result = context.toResult();
+
+        assertEquals(ByteString.copyFromUtf8("screen"), result.getScreenShot());
+        assertEquals("failed", result.getErrorMessage());
+    }
+
+    private Messages.ExecuteStepRequest request(String value) {
+        Spec.Parameter parameter = Spec.Parameter.newBuilder().setValue(value).setParameterType(Spec.Parameter.ParameterType.Static).build();
+        return Messages.ExecuteStepRequest.newBuilder().setParsedStepText("say {}").setActualStepText("say <word>").addParameters(parameter).build();
+    }
+
+    private Spec.ProtoExecutionResult failure(String name, long executionTime) {
+        return Spec.ProtoExecutionResult.newBuilder().setFailed(true).setExecutionTime(executionTime).setRecoverableError(false)
+                .setErrorMessage(name).setStackTrace(name + " stacktrace").setScreenShot(ByteString.copyFromUtf8(name)).build();
+    }
+
+    protected void tearDown() throws Exception {
+        ClassInstanceManager.clearCache();
+    }
+
+    public static class RecordingSteps {
+        private final List<String> calls = new ArrayList<String>();
+
+        public void before() {
+            calls.add("before");
+        }
+
+        public void failingHook() {
+            throw new RuntimeException("hook failed");
+        }
+
+        public void say(String word) {
+            calls.add(word);
+        }
+    }
+}
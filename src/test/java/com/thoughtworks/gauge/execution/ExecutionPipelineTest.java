@@ -1,12 +1,11 @@
 package com.thoughtworks.gauge.execution;
 
-import gauge.messages.Spec;
+import gauge.messages.Messages;
 import junit.framework.TestCase;
-import org.mockito.InOrder;
-import org.mockito.Mockito;
 
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class ExecutionPipelineTest extends TestCase {
 
@@ -26,57 +25,38 @@ public class ExecutionPipelineTest extends TestCase {
     }
 
     public void testOrderOfPipelineStagesExecution() throws Exception {
-        TestExecutionStage first = mock(TestExecutionStage.class);
-        TestExecutionStage second = mock(TestExecutionStage.class);
-        TestExecutionStage third = mock(TestExecutionStage.class);
-        TestExecutionStage fourth = mock(TestExecutionStage.class);
-
-        Mockito.doCallRealMethod().when(first).setNextStage(any(ExecutionStage.class));
-        Mockito.doCallRealMethod().when(first).execute(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(first).executeNext(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(first).next();
-
-        Mockito.doCallRealMethod().when(second).setNextStage(any(ExecutionStage.class));
-        Mockito.doCallRealMethod().when(second).execute(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(second).executeNext(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(second).next();
-
-        Mockito.doCallRealMethod().when(third).setNextStage(any(ExecutionStage.class));
-        Mockito.doCallRealMethod().when(third).execute(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(third).executeNext(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(third).next();
-
-        Mockito.doCallRealMethod().when(fourth).setNextStage(any(ExecutionStage.class));
-        Mockito.doCallRealMethod().when(fourth).execute(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(fourth).executeNext(any(Spec.ProtoExecutionResult.class));
-        Mockito.doCallRealMethod().when(fourth).next();
-
-        InOrder inOrder = Mockito.inOrder(first, second, third, fourth);
+        List<ExecutionStage> executed = new ArrayList<ExecutionStage>();
+        TestExecutionStage first = new TestExecutionStage(executed);
+        TestExecutionStage second = new TestExecutionStage(executed);
+        TestExecutionStage third = new TestExecutionStage(executed);
+        TestExecutionStage fourth = new TestExecutionStage(executed);
 
         ExecutionPipeline pipeline = new ExecutionPipeline(first);
         pipeline.addStages(second, third, fourth);
-        pipeline.start();
-
+        pipeline.start(new ExecutionContext(Messages.ExecuteStepRequest.newBuilder().setParsedStepText("foo").setActualStepText("foo").build()));
 
-        inOrder.verify(first).execute(any(Spec.ProtoExecutionResult.class));
-        inOrder.verify(second).execute(any(Spec.ProtoExecutionResult.class));
-        inOrder.verify(third).execute(any(Spec.ProtoExecutionResult.class));
-        inOrder.verify(fourth).execute(any(Spec.ProtoExecutionResult.class));
+        assertEquals(Arrays.<ExecutionStage>asList(first, second, third, fourth), executed);
     }
 
     private TestExecutionStage createStage() {
-        return new TestExecutionStage();
+        return new TestExecutionStage(new ArrayList<ExecutionStage>());
     }
 
     private class TestExecutionStage extends AbstractExecutionStage {
         public ExecutionStage next;
+        private final List<ExecutionStage> executed;
+
+        TestExecutionStage(List<ExecutionStage> executed) {
+            this.executed = executed;
+        }
 
         public void setNextStage(ExecutionStage stage) {
             this.next = stage;
         }
 
-        public Spec.ProtoExecutionResult execute(Spec.ProtoExecutionResult result) {
-            return executeNext(result);
+        public void execute(ExecutionContext context) {
+            executed.add(this);
+            executeNext(context);
         }
 
         protected ExecutionStage next() {
@@ -84,4 +64,4 @@ public class ExecutionPipelineTest extends TestCase {
         }
     }
 
-}
\ No newline at end of file
+}
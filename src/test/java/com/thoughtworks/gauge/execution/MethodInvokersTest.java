@@ -0,0 +1,164 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MethodInvokersTest extends TestCase {
+
+    public void testInvokesMethodWithPrimitiveAndReferenceArguments() throws Exception {
+        Steps steps = new Steps();
+        Method method = Steps.class.getMethod("record", int.class, boolean.class, double.class, String.class, String[].class);
+
+        MethodInvokers.get(method).invoke(steps, 42, true, 1.5, "text", new String[]{"a", "b"});
+
+        assertEquals(Arrays.asList("42", "true", "1.5", "text", "a,b"), steps.calls);
+    }
+
+    public void testInvokesStaticMethod() throws Exception {
+        Method method = Steps.class.getMethod("staticStep", long.class);
+
+        MethodInvokers.get(method).invoke(null, 7L);
+
+        assertEquals(7L, Steps.lastStaticValue);
+    }
+
+    public void testInvokesMethodWithoutArguments() throws Exception {
+        Steps steps = new Steps();
+
+        MethodInvokers.get(Steps.class.getMethod("noArguments")).invoke(steps);
+
+        assertEquals(Arrays.asList("called"), steps.calls);
+    }
+
+    public void testWrapsExceptionsThrownByTheMethod() throws Exception {
+        try {
+            MethodInvokers.get(Steps.class.getMethod("failing")).invoke(new Steps());
+            fail("expected the step failure");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+            assertEquals("step failed", e.getCause().getMessage());
+        }
+    }
+
+    public void testRejectsWrongNumberOfArguments() throws Exception {
+        try {
+            MethodInvokers.get(Steps.class.getMethod("noArguments")).invoke(new Steps(), "unexpected");
+            fail("expected wrong number of arguments");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testWidensArgumentsLikeReflection() throws Exception {
+        Method method = Steps.class.getMethod("staticStep", long.class);
+
+        MethodInvokers.get(method).invoke(null, 7);
+
+        assertEquals(7L, Steps.lastStaticValue);
+    }
+
+    public void testRejectsNarrowingArgumentsLikeReflection() throws Exception {
+        Method method = Steps.class.getMethod("record", int.class, boolean.class, double.class, String.class, String[].class);
+        try {
+            MethodInvokers.get(method).invoke(new Steps(), 42L, true, 1.5, "text", new String[]{"a", "b"});
+            fail("expected argument type mismatch");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testInvokersAreCachedPerMethod() throws Exception {
+        Method method = Steps.class.getMethod("noArguments");
+
+        assertSame(MethodInvokers.get(method), MethodInvokers.get(method));
+    }
+
+    public void testPublicMethodsAreCompiled() throws Exception {
+        Method method = Steps.class.getMethod("record", int.class, boolean.class, double.class, String.class, String[].class);
+
+        assertFalse(MethodInvokers.get(method) instanceof ReflectiveMethodInvoker);
+    }
+
+    public void testMethodsTakingNonPublicTypesAreInvokedReflectively() throws Exception {
+        Method method = Steps.class.getMethod("hidden", HiddenSteps.class);
+
+        assertTrue(MethodInvokers.get(method) instanceof ReflectiveMethodInvoker);
+        HiddenSteps hiddenSteps = new HiddenSteps();
+        MethodInvokers.get(method).invoke(new Steps(), hiddenSteps);
+        assertTrue(hiddenSteps.called);
+    }
+
+    public void testNonPublicClassesAreInvokedReflectively() throws Exception {
+        Method method = HiddenSteps.class.getMethod("step");
+
+        assertTrue(MethodInvokers.get(method) instanceof ReflectiveMethodInvoker);
+        HiddenSteps steps = new HiddenSteps();
+        MethodInvokers.get(method).invoke(steps);
+        assertTrue(steps.called);
+    }
+
+    public void testGeneratedSourceCallsMethodDirectly() throws Exception {
+        String source = MethodInvokers.invokeSource(Steps.class.getMethod("record", int.class, boolean.class, double.class, String.class, String[].class));
+
+        assertTrue(source.contains("((com.thoughtworks.gauge.execution.MethodInvokersTest$Steps) instance).record(((java.lang.Integer) args[0]).intValue(), ((java.lang.Boolean) args[1]).booleanValue(), ((java.lang.Double) args[2]).doubleValue(), ((java.lang.String) args[3]), ((java.lang.String[]) args[4]))"));
+    }
+
+    public static class Steps {
+        private static long lastStaticValue;
+        private final List<String> calls = new ArrayList<String>();
+
+        public void record(int number, boolean flag, double decimal, String text, String[] values) {
+            calls.add(String.valueOf(number));
+            calls.add(String.valueOf(flag));
+            calls.add(String.valueOf(decimal));
+            calls.add(text);
+            calls.add(values[0] + "," + values[1]);
+        }
+
+        public static void staticStep(long value) {
+            lastStaticValue = value;
+        }
+
+        public void noArguments() {
+            calls.add("called");
+        }
+
+        public void hidden(HiddenSteps steps) {
+            steps.step();
+        }
+
+        public void failing() {
+            throw new AssertionError("step failed");
+        }
+    }
+
+    static class HiddenSteps {
+        private boolean called;
+
+        public void step() {
+            called = true;
+        }
+    }
+}
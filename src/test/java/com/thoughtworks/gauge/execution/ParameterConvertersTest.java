@@ -0,0 +1,159 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import com.thoughtworks.gauge.ParameterConverter;
+import gauge.messages.Spec;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class ParameterConvertersTest extends TestCase {
+
+    public void testConvertsPrimitivesAndWrappers() throws Exception {
+        Object[] arguments = bind("primitives", "7", "8", "x", "true", "1.25");
+
+        assertEquals((short) 7, arguments[0]);
+        assertEquals((byte) 8, arguments[1]);
+        assertEquals('x', arguments[2]);
+        assertEquals(Boolean.TRUE, arguments[3]);
+        assertEquals(1.25f, arguments[4]);
+    }
+
+    public void testConvertsEnumsByName() throws Exception {
+        assertEquals(Color.GREEN, bind("color", "GREEN")[0]);
+        assertEquals(Color.RED, bind("color", "red")[0]);
+    }
+
+    public void testConvertsTypesWithStaticFactories() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Object[] arguments = bind("factories", "12.50", uuid.toString());
+
+        assertEquals(new BigDecimal("12.50"), arguments[0]);
+        assertEquals(uuid, arguments[1]);
+    }
+
+    public void testConvertsArraysAndLists() throws Exception {
+        Object[] arguments = bind("collections", "1, 2,3", "a, b", "RED,GREEN", "");
+
+        assertTrue(Arrays.equals(new int[]{1, 2, 3}, (int[]) arguments[0]));
+        assertTrue(Arrays.equals(new String[]{"a", "b"}, (String[]) arguments[1]));
+        assertEquals(Arrays.asList(Color.RED, Color.GREEN), arguments[2]);
+        assertEquals(Arrays.asList(), arguments[3]);
+    }
+
+    public void testUsesConvertersFromServiceLoader() throws Exception {
+        Point point = (Point) bind("point", "3:4")[0];
+
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+    }
+
+    public void testUnknownTypesArePassedAsStrings() throws Exception {
+        assertEquals("raw", bind("unknown", "raw")[0]);
+        assertNull(ParameterConverters.find(String.class));
+        assertNull(ParameterConverters.find(Object.class));
+    }
+
+    public void testReusesConvertedValuesOfImmutableTypes() throws Exception {
+        Method method = method("factories");
+        ArgumentBinder binder = ArgumentBinder.forMethod(method);
+        List<Spec.Parameter> parameters = Arrays.asList(parameter("1.5"), parameter(UUID.randomUUID().toString()));
+
+        assertSame(binder.bind(parameters)[0], binder.bind(parameters)[0]);
+        assertTrue(ParameterConverters.isImmutable(BigDecimal.class));
+        assertFalse(ParameterConverters.isImmutable(Point.class));
+    }
+
+    public void testConversionErrorsNameTheTargetType() throws Exception {
+        try {
+            bind("color", "PURPLE");
+            fail("expected a conversion error");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("PURPLE"));
+        }
+    }
+
+    private Object[] bind(String methodName, String... values) throws Exception {
+        Spec.Parameter[] parameters = new Spec.Parameter[values.length];
+        for (int i = 0; i < values.length; i++) {
+            parameters[i] = parameter(values[i]);
+        }
+        return ArgumentBinder.forMethod(method(methodName)).bind(Arrays.asList(parameters));
+    }
+
+    private Method method(String name) {
+        for (Method method : getClass().getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private Spec.Parameter parameter(String value) {
+        return Spec.Parameter.newBuilder().setValue(value).setParameterType(Spec.Parameter.ParameterType.Static).build();
+    }
+
+    public void primitives(short s, Byte b, char c, Boolean flag, float f) {
+    }
+
+    public void color(Color color) {
+    }
+
+    public void factories(BigDecimal amount, UUID id) {
+    }
+
+    public void collections(int[] numbers, String[] names, List<Color> colors, List<String> empty) {
+    }
+
+    public void point(Point point) {
+    }
+
+    public void unknown(CharSequence value) {
+    }
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    public static class Point {
+        private final int x;
+        private final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class PointConverter implements ParameterConverter {
+        public boolean canConvert(Class<?> type) {
+            return type == Point.class;
+        }
+
+        public Object convert(String value, Class<?> type) {
+            String[] coordinates = value.split(":");
+            return new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.execution;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationTargetException;
+
+public class StackTraceFormatterTest extends TestCase {
+
+    public void testUnwrapsReflectionExceptions() throws Exception {
+        RuntimeException failure = new RuntimeException("failed");
+
+        assertSame(failure, StackTraceFormatter.unwrap(new InvocationTargetException(new InvocationTargetException(failure))));
+        assertSame(failure, StackTraceFormatter.unwrap(failure));
+    }
+
+    public void testLeavesOutRunnerAndReflectionFrames() throws Exception {
+        RuntimeException failure = exception("failed",
+                frame("com.example.Steps", "step"),
+                frame("com.example.Steps$GaugeInvoker1", "invoke"),
+                frame("jdk.internal.reflect.NativeMethodAccessorImpl", "invoke0"),
+                frame("java.lang.reflect.Method", "invoke"),
+                frame("com.thoughtworks.gauge.execution.MethodExecutor", "execute"),
+                frame("com.thoughtworks.gauge.GaugeRuntime", "main"));
+
+        assertEquals("com.example.Steps.step(Steps.java:1)\n", StackTraceFormatter.format(failure));
+    }
+
+    public void testListsCausesAndFramesInCommon() throws Exception {
+        RuntimeException cause = exception("cause", frame("com.example.Database", "query"), frame("com.example.Steps", "load"), frame("com.example.Steps", "step"));
+        RuntimeException failure = exception("failed", frame("com.example.Steps", "load"), frame("com.example.Steps", "step"));
+        failure.initCause(cause);
+
+        assertEquals("com.example.Steps.load(Steps.java:1)\n" +
+                "com.example.Steps.step(Steps.java:1)\n" +
+                "Caused by: java.lang.RuntimeException: cause\n" +
+                "com.example.Database.query(Database.java:1)\n" +
+                "... 2 more\n", StackTraceFormatter.format(failure));
+    }
+
+    public void testLimitsNumberOfFrames() throws Exception {
+        StackTraceElement[] frames = new StackTraceElement[150];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = frame("com.example.Recursive", "call" + i);
+        }
+        RuntimeException failure = new RuntimeException("deep");
+        failure.setStackTrace(frames);
+
+        String formatted = StackTraceFormatter.format(failure);
+
+        assertEquals(101, formatted.split("\n").length);
+        assertTrue(formatted.endsWith("... 50 more frames omitted\n"));
+    }
+
+    private RuntimeException exception(String message, StackTraceElement... frames) {
+        RuntimeException exception = new RuntimeException(message);
+        exception.setStackTrace(frames);
+        return exception;
+    }
+
+    private StackTraceElement frame(String className, String methodName) {
+        return new StackTraceElement(className, methodName, className.substring(className.lastIndexOf('.') + 1).replaceAll("\\$.*", "") + ".java", 1);
+    }
+}
@@ -6,19 +6,22 @@ import junit.framework.TestCase;
 
 import java.lang.reflect.Method;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 public class StepExecutionStageTest extends TestCase {
     public void testStepMethodExecutionIsCalledWithoutParameters() throws Exception {
         Messages.ExecuteStepRequest executeStepRequest = Messages.ExecuteStepRequest.newBuilder().setParsedStepText("foo bar").setActualStepText("foo bar").build();
-        StepExecutionStage executionStage = new StepExecutionStage(executeStepRequest);
-        MethodExecutor methodExecutor = mock(MethodExecutor.class);
+        MethodExecutor methodExecutor = passingMethodExecutor();
         Method fooBarMethod = this.getClass().getMethod("fooBar");
-        executionStage.executeStepMethod(methodExecutor, fooBarMethod);
+        ExecutionContext context = new ExecutionContext(executeStepRequest);
+        new StepExecutionStage(fooBarMethod, methodExecutor).execute(context);
 
-        verify(methodExecutor, times(1)).execute(fooBarMethod);
+        verify(methodExecutor, times(1)).execute(context, ExecutionTimings.Stage.STEP, getClass(), fooBarMethod, new Object[0]);
 
     }
 
@@ -26,15 +29,61 @@ public class StepExecutionStageTest extends TestCase {
         Spec.Parameter param1 = Spec.Parameter.newBuilder().setValue("1").setName("number").setParameterType(Spec.Parameter.ParameterType.Static).build();
         Spec.Parameter param2 = Spec.Parameter.newBuilder().setValue("foo").setName("string").setParameterType(Spec.Parameter.ParameterType.Special_String).build();
         Messages.ExecuteStepRequest executeStepRequest = Messages.ExecuteStepRequest.newBuilder().setParsedStepText("hello {} world {}").setActualStepText("hello <a> world <b>").addParameters(param1).addParameters(param2).build();
-        StepExecutionStage executionStage = new StepExecutionStage(executeStepRequest);
-        MethodExecutor methodExecutor = mock(MethodExecutor.class);
+        MethodExecutor methodExecutor = passingMethodExecutor();
         Method fooBarMethod = this.getClass().getMethod("fooBar", int.class, String.class);
-        executionStage.executeStepMethod(methodExecutor, fooBarMethod);
+        ExecutionContext context = new ExecutionContext(executeStepRequest);
+        new StepExecutionStage(fooBarMethod, methodExecutor).execute(context);
+
+        verify(methodExecutor, times(1)).execute(context, ExecutionTimings.Stage.STEP, getClass(), fooBarMethod, new Object[]{1, "foo"});
+
+    }
+
+    public void testFailedConversionFailsOnlyThatStep() throws Exception {
+        Method method = this.getClass().getMethod("withColor", Color.class);
+        StepExecutionStage executionStage = new StepExecutionStage(method);
+
+        ExecutionContext failing = new ExecutionContext(request("purple"));
+        executionStage.execute(failing);
+        Spec.ProtoExecutionResult result = failing.toResult();
+
+        assertTrue(result.getFailed());
+        assertTrue(result.getErrorMessage(), result.getErrorMessage().contains("purple"));
+        assertTrue(result.getStackTrace().length() > 0);
+        assertNull(lastColor);
+
+        ExecutionContext passing = new ExecutionContext(request("RED"));
+        executionStage.execute(passing);
+
+        assertFalse(passing.toResult().getFailed());
+        assertEquals(Color.RED, lastColor);
+    }
+
+    private Messages.ExecuteStepRequest request(String value) {
+        Spec.Parameter parameter = Spec.Parameter.newBuilder().setValue(value).setParameterType(Spec.Parameter.ParameterType.Static).build();
+        return Messages.ExecuteStepRequest.newBuilder().setParsedStepText("paint {}").setActualStepText("paint <color>").addParameters(parameter).build();
+    }
+
+    private MethodExecutor passingMethodExecutor() {
+        MethodExecutor methodExecutor = mock(MethodExecutor.class);
+        when(methodExecutor.execute(any(ExecutionContext.class), eq(ExecutionTimings.Stage.STEP), any(Class.class), any(Method.class), any(Object[].class)))
+                .thenReturn(Spec.ProtoExecutionResult.newBuilder().setFailed(false).setExecutionTime(0).build());
+        return methodExecutor;
+    }
 
-        verify(methodExecutor, times(1)).execute(fooBarMethod, 1, "foo");
 
+    public enum Color {
+        RED, GREEN
     }
 
+    private static Color lastColor;
+
+    public void withColor(Color color) {
+        lastColor = color;
+    }
+
+    protected void tearDown() throws Exception {
+        lastColor = null;
+    }
 
     public void fooBar() {
         // Test methods checking methodExecutor
@@ -44,4 +93,4 @@ public class StepExecutionStageTest extends TestCase {
         // Test methods checking methodExecutor with params
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.thoughtworks.gauge.processor;
+
+import junit.framework.TestCase;
+
+public class ClearObjectCacheTest extends TestCase {
+
+    public void testLevelsAreResolvedFromTheirNames() {
+        assertEquals(ClearObjectCache.SCENARIO_LEVEL, ClearObjectCache.fromLevel("scenario"));
+        assertEquals(ClearObjectCache.SUITE_LEVEL, ClearObjectCache.fromLevel(" suite "));
+        assertNull(ClearObjectCache.fromLevel(null));
+        assertNull(ClearObjectCache.fromLevel("step"));
+    }
+
+    public void testEndingALevelEndsLifetimesUpToIt() {
+        assertTrue(ClearObjectCache.endsLifetime(ClearObjectCache.SCENARIO_LEVEL, ClearObjectCache.SCENARIO_LEVEL));
+        assertTrue(ClearObjectCache.endsLifetime(ClearObjectCache.SCENARIO_LEVEL, ClearObjectCache.SPEC_LEVEL));
+        assertFalse(ClearObjectCache.endsLifetime(ClearObjectCache.SPEC_LEVEL, ClearObjectCache.SCENARIO_LEVEL));
+        assertTrue(ClearObjectCache.endsLifetime(ClearObjectCache.SPEC_LEVEL, ClearObjectCache.SUITE_LEVEL));
+        assertFalse(ClearObjectCache.endsLifetime(null, ClearObjectCache.SUITE_LEVEL));
+    }
+}
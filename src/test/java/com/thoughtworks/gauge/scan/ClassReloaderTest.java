@@ -0,0 +1,143 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ClassReloaderTest extends TestCase {
+    private File workingDir;
+    private File outputDir;
+    private AnnotatedMethods reloadedMethods;
+    private Set<String> reloadedClasses;
+    private ClassReloader reloader;
+
+    protected void setUp() throws Exception {
+        workingDir = File.createTempFile("gauge-reload", "");
+        workingDir.delete();
+        outputDir = new File(workingDir, "out");
+        outputDir.mkdirs();
+        compile("First", "package sample;\n" +
+                "public class First { @com.thoughtworks.gauge.Step(\"first\") public void first() {} }\n");
+        compile("Second", "package sample;\n" +
+                "public class Second { @com.thoughtworks.gauge.Step(\"second\") public void second() {} }\n");
+
+        AnnotatedMethods classpathMethods = new AnnotatedMethods();
+        classpathMethods.add(Step.class, LibrarySteps.class.getMethod("library"));
+        reloader = new ClassReloader(Arrays.asList(outputDir), classpathMethods, new JavassistScanner(new ScanScope(new ArrayList<String>(), new ArrayList<String>())),
+                getClass().getClassLoader(), new ClassReloader.Listener() {
+            public void reloaded(AnnotatedMethods annotatedMethods, Set<String> classNames) {
+                reloadedMethods = annotatedMethods;
+                reloadedClasses = classNames;
+            }
+        }, 1000);
+        reloader.initialize();
+    }
+
+    public void testNothingIsReloadedWithoutChanges() throws Exception {
+        assertFalse(reloader.prepareReloadIfChanged());
+        assertFalse(reloader.applyPendingReload());
+        assertNull(reloadedMethods);
+    }
+
+    public void testReloadsChangedClassesInNewClassLoader() throws Exception {
+        compile("First", "package sample;\n" +
+                "public class First { @com.thoughtworks.gauge.Step(\"first again\") public void renamed() {} }\n");
+        touch("sample/First.class");
+
+        assertTrue(reloader.prepareReloadIfChanged());
+        assertTrue(reloader.applyPendingReload());
+
+        Set<Method> steps = reloadedMethods.get(Step.class);
+        assertEquals(new HashSet<String>(Arrays.asList("library", "first again", "second")), stepTexts(steps));
+        Method renamed = stepNamed(steps, "first again");
+        assertNotSame(getClass().getClassLoader(), renamed.getDeclaringClass().getClassLoader());
+        assertSame(renamed.getDeclaringClass().getClassLoader(), stepNamed(steps, "second").getDeclaringClass().getClassLoader());
+        assertSame(getClass().getClassLoader(), stepNamed(steps, "library").getDeclaringClass().getClassLoader());
+        assertSame(Step.class, renamed.getAnnotation(Step.class).annotationType());
+        assertEquals(new HashSet<String>(Arrays.asList("sample.First", "sample.Second")), reloadedClasses);
+        assertFalse(reloader.applyPendingReload());
+    }
+
+    public void testDropsStepsOfDeletedClasses() throws Exception {
+        assertTrue(new File(outputDir, "sample/Second.class").delete());
+
+        assertTrue(reloader.prepareReloadIfChanged());
+        reloader.applyPendingReload();
+
+        assertEquals(new HashSet<String>(Arrays.asList("library", "first")), stepTexts(reloadedMethods.get(Step.class)));
+        assertTrue(reloadedClasses.contains("sample.Second"));
+    }
+
+    private Set<String> stepTexts(Set<Method> steps) {
+        Set<String> texts = new HashSet<String>();
+        for (Method step : steps) {
+            texts.add(step.getAnnotation(Step.class).value()[0]);
+        }
+        return texts;
+    }
+
+    private Method stepNamed(Set<Method> steps, String text) {
+        for (Method step : steps) {
+            if (step.getAnnotation(Step.class).value()[0].equals(text)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    private void touch(String relativePath) {
+        File file = new File(outputDir, relativePath);
+        file.setLastModified(file.lastModified() + 2000);
+    }
+
+    private void compile(String className, String source) throws Exception {
+        File sourceFile = new File(workingDir, className + ".java");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "UTF-8");
+        writer.write(source);
+        writer.close();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-proc:none", "-classpath", System.getProperty("java.class.path"),
+                "-d", outputDir.getPath(), sourceFile.getPath());
+        assertEquals(0, result);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workingDir);
+    }
+
+    public static class LibrarySteps {
+        @Step("library")
+        public void library() {
+        }
+    }
+}
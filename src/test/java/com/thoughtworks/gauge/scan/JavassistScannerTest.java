@@ -0,0 +1,142 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.AfterScenario;
+import com.thoughtworks.gauge.BeforeSuite;
+import com.thoughtworks.gauge.Step;
+import com.thoughtworks.gauge.Table;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class JavassistScannerTest extends TestCase {
+    private static final String FIXTURE = ScannedSteps.class.getName().replace('.', '/') + ".class";
+    private File workingDir;
+
+    protected void setUp() throws Exception {
+        workingDir = File.createTempFile("gauge-javassist", "");
+        workingDir.delete();
+        workingDir.mkdirs();
+    }
+
+    public void testFindsStepsAndHooksInClassDirectory() throws Exception {
+        File classes = new File(workingDir, "classes");
+        copyFixture(new File(classes, FIXTURE));
+
+        List<StepIndexEntry> entries = new JavassistScanner(allPackages()).scan(classes.toURI().toURL());
+
+        assertEquals(3, entries.size());
+        assertTrue(entries.contains(new StepIndexEntry("Step", ScannedSteps.class.getName(), "say", Arrays.asList("java.lang.String", "int[][]", "com.thoughtworks.gauge.Table"), Arrays.asList("say <what> <times> <table>"))));
+        assertTrue(entries.contains(new StepIndexEntry("Step", ScannedSteps.class.getName(), "aliased", new ArrayList<String>(), Arrays.asList("first alias", "second alias"))));
+        assertTrue(entries.contains(new StepIndexEntry("BeforeSuite", ScannedSteps.class.getName(), "setUp", new ArrayList<String>(), new ArrayList<String>())));
+    }
+
+    public void testMethodWithStepAndHookAnnotationsHasTwoEntries() throws Exception {
+        File classes = new File(workingDir, "classes");
+        copyFixture(new File(classes, HookAndStep.class.getName().replace('.', '/') + ".class"));
+
+        List<StepIndexEntry> entries = new JavassistScanner(allPackages()).scan(classes.toURI().toURL());
+
+        assertEquals(2, entries.size());
+    }
+
+    public void testFindsStepsInJar() throws Exception {
+        File jar = new File(workingDir, "steps.jar");
+        ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(jar));
+        stream.putNextEntry(new ZipEntry(FIXTURE));
+        copy(getClass().getClassLoader().getResourceAsStream(FIXTURE), stream);
+        stream.close();
+
+        assertEquals(3, new JavassistScanner(allPackages()).scan(jar.toURI().toURL()).size());
+    }
+
+    public void testSkipsClassesOutsideScannedPackages() throws Exception {
+        File classes = new File(workingDir, "classes");
+        copyFixture(new File(classes, FIXTURE));
+
+        ScanScope scope = new ScanScope(Arrays.asList("com.example"), new ArrayList<String>());
+
+        assertTrue(new JavassistScanner(scope).scan(classes.toURI().toURL()).isEmpty());
+    }
+
+    public void testParameterTypes() throws Exception {
+        assertEquals(Arrays.asList("int", "java.lang.String[]", "long", "boolean[][]", "a.b.C$D"), JavassistScanner.parameterTypes("(I[Ljava/lang/String;J[[ZLa/b/C$D;)V"));
+        assertTrue(JavassistScanner.parameterTypes("()V").isEmpty());
+    }
+
+    private ScanScope allPackages() {
+        return new ScanScope(new ArrayList<String>(), new ArrayList<String>());
+    }
+
+    private void copyFixture(File destination) throws IOException {
+        destination.getParentFile().mkdirs();
+        String resource = destination.getPath().substring(new File(workingDir, "classes").getPath().length() + 1).replace(File.separatorChar, '/');
+        copy(getClass().getClassLoader().getResourceAsStream(resource), new FileOutputStream(destination));
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        if (!(out instanceof ZipOutputStream)) {
+            out.close();
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workingDir);
+    }
+
+    public static class ScannedSteps {
+        @Step("say <what> <times> <table>")
+        public void say(String what, int[][] times, Table table) {
+        }
+
+        @Step({"first alias", "second alias"})
+        public void aliased() {
+        }
+
+        @BeforeSuite
+        public void setUp() {
+        }
+
+        public void notAStep() {
+        }
+    }
+
+    public static class HookAndStep {
+        @Step("a step")
+        @AfterScenario
+        public void both() {
+        }
+    }
+}
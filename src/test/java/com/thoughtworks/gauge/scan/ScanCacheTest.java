@@ -0,0 +1,139 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.BeforeSpec;
+import com.thoughtworks.gauge.Step;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ScanCacheTest extends TestCase {
+    private File workingDir;
+    private File classDir;
+    private File jar;
+    private CountingScanner scanner;
+    private ScanCache cache;
+
+    protected void setUp() throws Exception {
+        workingDir = File.createTempFile("gauge-scan", "");
+        workingDir.delete();
+        classDir = new File(workingDir, "classes");
+        new File(classDir, "sample").mkdirs();
+        writeFile(new File(classDir, "sample/Steps.class"), "steps");
+        jar = new File(workingDir, "lib.jar");
+        writeFile(jar, "jar contents");
+        scanner = new CountingScanner();
+        cache = new ScanCache(new File(workingDir, "cache"), scanner);
+    }
+
+    public void testScansEveryEntryOnFirstRun() throws Exception {
+        AnnotatedMethods annotatedMethods = cache.scan(classpath(), getClass().getClassLoader());
+
+        assertEquals(2, scanner.scans.size());
+        assertEquals(0, cache.getCacheHits());
+        assertEquals(1, annotatedMethods.get(Step.class).size());
+        assertEquals(CachedSteps.class.getMethod("step"), annotatedMethods.get(Step.class).iterator().next());
+        assertEquals(1, annotatedMethods.get(BeforeSpec.class).size());
+    }
+
+    public void testUnchangedEntriesAreLoadedFromCache() throws Exception {
+        cache.scan(classpath(), getClass().getClassLoader());
+        scanner.scans.clear();
+
+        AnnotatedMethods annotatedMethods = new ScanCache(new File(workingDir, "cache"), scanner).scan(classpath(), getClass().getClassLoader());
+
+        assertTrue(scanner.scans.isEmpty());
+        assertEquals(1, annotatedMethods.get(Step.class).size());
+        assertEquals(1, annotatedMethods.get(BeforeSpec.class).size());
+    }
+
+    public void testOnlyChangedEntriesAreRescanned() throws Exception {
+        cache.scan(classpath(), getClass().getClassLoader());
+        scanner.scans.clear();
+
+        File newClass = new File(classDir, "sample/MoreSteps.class");
+        writeFile(newClass, "more steps");
+        cache.scan(classpath(), getClass().getClassLoader());
+
+        assertEquals(Arrays.asList(classDir.toURI().toURL()), scanner.scans);
+        assertEquals(1, cache.getCacheHits());
+    }
+
+    public void testJarFingerprintChangesWithContent() throws Exception {
+        String before = ScanCache.fingerprint(jar);
+        long lastModified = jar.lastModified();
+        writeFile(jar, "jar CONTENTS");
+        jar.setLastModified(lastModified);
+
+        assertFalse(before.equals(ScanCache.fingerprint(jar)));
+    }
+
+    private List<URL> classpath() throws IOException {
+        return Arrays.asList(classDir.toURI().toURL(), jar.toURI().toURL());
+    }
+
+    private void writeFile(File file, String contents) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        stream.write(contents.getBytes("UTF-8"));
+        stream.close();
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workingDir);
+    }
+
+    private class CountingScanner implements ClasspathScanner {
+        private final List<URL> scans = Collections.synchronizedList(new ArrayList<URL>());
+
+        public List<StepIndexEntry> scan(URL classpathEntry) {
+            scans.add(classpathEntry);
+            List<StepIndexEntry> entries = new ArrayList<StepIndexEntry>();
+            try {
+                if (classpathEntry.getPath().endsWith(".jar")) {
+                    entries.add(StepIndexEntry.from(BeforeSpec.class, CachedSteps.class.getMethod("beforeSpec")));
+                } else {
+                    Method step = CachedSteps.class.getMethod("step");
+                    entries.add(StepIndexEntry.from(Step.class, step));
+                }
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(e);
+            }
+            return entries;
+        }
+    }
+
+    public static class CachedSteps {
+        @Step("a cached step")
+        public void step() {
+        }
+
+        @BeforeSpec
+        public void beforeSpec() {
+        }
+    }
+}
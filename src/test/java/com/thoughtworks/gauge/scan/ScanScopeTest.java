@@ -0,0 +1,77 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ScanScopeTest extends TestCase {
+    private File workingDir;
+
+    protected void setUp() throws Exception {
+        workingDir = File.createTempFile("gauge-scope", "");
+        workingDir.delete();
+        workingDir.mkdirs();
+    }
+
+    public void testExcludesJarsMatchingPatterns() throws Exception {
+        ScanScope scope = new ScanScope(new ArrayList<String>(), Arrays.asList("selenium-*.jar", "guava.jar"));
+        URL selenium = new File(workingDir, "selenium-java-2.45.jar").toURI().toURL();
+        URL guava = new File(workingDir, "guava.jar").toURI().toURL();
+        URL steps = new File(workingDir, "my-steps.jar").toURI().toURL();
+        URL classes = new File(workingDir, "classes").toURI().toURL();
+
+        assertEquals(Arrays.asList(steps, classes), scope.filter(Arrays.asList(selenium, guava, steps, classes)));
+    }
+
+    public void testIncludesEverythingWithoutPackages() throws Exception {
+        ScanScope scope = new ScanScope(new ArrayList<String>(), new ArrayList<String>());
+
+        assertTrue(scope.includesClass("org/example/Steps.class"));
+    }
+
+    public void testIncludesOnlyConfiguredPackages() throws Exception {
+        ScanScope scope = new ScanScope(Arrays.asList("com.example.steps", "org.acme"), new ArrayList<String>());
+
+        assertTrue(scope.includesClass("com/example/steps/LoginSteps.class"));
+        assertTrue(scope.includesClass("org.acme.deep.Hooks"));
+        assertFalse(scope.includesClass("com/example/stepsother/Foo.class"));
+        assertFalse(scope.includesClass("org/openqa/selenium/WebDriver.class"));
+    }
+
+    public void testDetectsReferencesToGaugeTypes() throws Exception {
+        assertTrue(ScanScope.referencesGauge("CAFEBABE Lcom/thoughtworks/gauge/Step; value".getBytes("UTF-8")));
+        assertFalse(ScanScope.referencesGauge("CAFEBABE Ljava/lang/String; com/thoughtworks/gaugeother".getBytes("UTF-8")));
+    }
+
+    public void testContains() throws Exception {
+        assertTrue(ScanScope.contains("abcabd".getBytes(), "abd".getBytes()));
+        assertFalse(ScanScope.contains("abcab".getBytes(), "abd".getBytes()));
+        assertFalse(ScanScope.contains("ab".getBytes(), "abd".getBytes()));
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workingDir);
+    }
+}
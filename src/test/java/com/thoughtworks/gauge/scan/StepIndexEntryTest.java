@@ -0,0 +1,65 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+import com.thoughtworks.gauge.Table;
+import junit.framework.TestCase;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class StepIndexEntryTest extends TestCase {
+
+    public void testLineRoundTripWithSpecialCharacters() throws Exception {
+        StepIndexEntry entry = new StepIndexEntry("Step", "com.example.Steps$Inner", "doIt", Arrays.asList("int", "java.lang.String[]"),
+                Arrays.asList("a step with\ttab and \\ backslash", "second\nline <a>"));
+
+        StepIndexEntry parsed = StepIndexEntry.fromLine(entry.toLine());
+
+        assertEquals(entry, parsed);
+        assertEquals(Arrays.asList("a step with\ttab and \\ backslash", "second\nline <a>"), parsed.getStepTexts());
+    }
+
+    public void testLineRoundTripForHookWithoutParameters() throws Exception {
+        StepIndexEntry entry = new StepIndexEntry("BeforeSuite", "com.example.Hooks", "setUp", new ArrayList<String>(), new ArrayList<String>());
+
+        assertEquals(entry, StepIndexEntry.fromLine(entry.toLine()));
+    }
+
+    public void testResolvesIndexedMethod() throws Exception {
+        Method method = IndexedSteps.class.getMethod("withTable", String.class, Table.class, int[].class);
+        StepIndexEntry entry = StepIndexEntry.from(Step.class, method, Arrays.asList("a step with <a> and <table>"));
+
+        assertTrue(entry.toLine().contains("\tjava.lang.String,com.thoughtworks.gauge.Table,int[]\t"));
+        assertEquals(method, entry.resolve(getClass().getClassLoader()));
+    }
+
+    public void testStaleEntriesDoNotResolve() throws Exception {
+        assertNull(new StepIndexEntry("Step", "com.example.Deleted", "gone", new ArrayList<String>(), new ArrayList<String>()).resolve(getClass().getClassLoader()));
+        assertNull(new StepIndexEntry("Step", IndexedSteps.class.getName(), "renamed", new ArrayList<String>(), new ArrayList<String>()).resolve(getClass().getClassLoader()));
+        assertNull(new StepIndexEntry("BeforeSuite", IndexedSteps.class.getName(), "withTable", Arrays.asList("java.lang.String", "com.thoughtworks.gauge.Table", "int[]"), new ArrayList<String>()).resolve(getClass().getClassLoader()));
+    }
+
+    public static class IndexedSteps {
+        @Step("a step with <a> and <table>")
+        public void withTable(String a, Table table, int[] numbers) {
+        }
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright 2015 ThoughtWorks, Inc.
+
+// This file is part of Gauge-Java.
+
+// Gauge-Java is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+
+// Gauge-Java is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+
+// You should have received a copy of the GNU General Public License
+// along with Gauge-Java.  If not, see <http://www.gnu.org/licenses/>.
+
+package com.thoughtworks.gauge.scan;
+
+import com.thoughtworks.gauge.Step;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StepIndexProcessorTest extends TestCase {
+    private File workingDir;
+    private File outputDir;
+
+    protected void setUp() throws Exception {
+        workingDir = File.createTempFile("gauge-index", "");
+        workingDir.delete();
+        outputDir = new File(workingDir, "out");
+        outputDir.mkdirs();
+    }
+
+    public void testIndexesStepsAndHooks() throws Exception {
+        compile("Steps", "package sample;\n" +
+                "import com.thoughtworks.gauge.*;\n" +
+                "public class Steps {\n" +
+                "    @Step({\"say <what> to <whom>\", \"tell <whom> <what>\"})\n" +
+                "    public void say(String what, java.util.List<String> whom) {}\n" +
+                "    @BeforeSuite\n" +
+                "    public void setUp() {}\n" +
+                "    public static class Nested {\n" +
+                "        @Step(\"nested\") public void nested(int[] values, Table table) {}\n" +
+                "    }\n" +
+                "}\n");
+
+        List<StepIndexEntry> entries = readIndex();
+
+        assertEquals(3, entries.size());
+        assertTrue(entries.contains(new StepIndexEntry("Step", "sample.Steps", "say", Arrays.asList("java.lang.String", "java.util.List"), Arrays.asList("say <what> to <whom>", "tell <whom> <what>"))));
+        assertTrue(entries.contains(new StepIndexEntry("BeforeSuite", "sample.Steps", "setUp", Arrays.<String>asList(), Arrays.<String>asList())));
+        assertTrue(entries.contains(new StepIndexEntry("Step", "sample.Steps$Nested", "nested", Arrays.asList("int[]", "com.thoughtworks.gauge.Table"), Arrays.asList("nested"))));
+    }
+
+    public void testIncrementalCompilationKeepsEntriesOfOtherClasses() throws Exception {
+        compile("First", "package sample;\n" +
+                "public class First { @com.thoughtworks.gauge.Step(\"first\") public void first() {} }\n");
+        compile("Second", "package sample;\n" +
+                "public class Second { @com.thoughtworks.gauge.Step(\"second\") public void second() {} }\n");
+        compile("First", "package sample;\n" +
+                "public class First { @com.thoughtworks.gauge.Step(\"first again\") public void renamed() {} }\n");
+
+        List<StepIndexEntry> entries = readIndex();
+
+        assertEquals(2, entries.size());
+        assertTrue(entries.contains(new StepIndexEntry("Step", "sample.Second", "second", Arrays.<String>asList(), Arrays.asList("second"))));
+        assertTrue(entries.contains(new StepIndexEntry("Step", "sample.First", "renamed", Arrays.<String>asList(), Arrays.asList("first again"))));
+    }
+
+    public void testLoadsIndexesPerClasspathEntry() throws Exception {
+        compile("Indexed", "package sample;\n" +
+                "public class Indexed { @com.thoughtworks.gauge.Step(\"indexed\") public void indexed() {} }\n");
+        File unindexedDir = new File(workingDir, "unindexed");
+        unindexedDir.mkdirs();
+        compile("Unindexed", "package sample;\n" +
+                "public class Unindexed { @com.thoughtworks.gauge.Step(\"unindexed\") public void unindexed() {} }\n", unindexedDir, "-proc:none");
+        List<URL> classpath = Arrays.asList(outputDir.toURI().toURL(), unindexedDir.toURI().toURL());
+        ClassLoader classLoader = new URLClassLoader(classpath.toArray(new URL[classpath.size()]), getClass().getClassLoader());
+        AnnotatedMethods annotatedMethods = new AnnotatedMethods();
+
+        List<URL> unindexed = StepIndex.load(classpath, classLoader, annotatedMethods);
+
+        assertEquals(Arrays.asList(unindexedDir.toURI().toURL()), unindexed);
+        assertEquals(1, annotatedMethods.get(Step.class).size());
+        assertEquals("indexed", annotatedMethods.get(Step.class).iterator().next().getName());
+    }
+
+    private void compile(String className, String source) throws IOException {
+        compile(className, source, outputDir, "-processor", StepIndexProcessor.class.getName());
+    }
+
+    private void compile(String className, String source, File outputDir, String... options) throws IOException {
+        File sourceFile = new File(workingDir, "src/sample/" + className + ".java");
+        sourceFile.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "UTF-8");
+        writer.write(source);
+        writer.close();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<String>(Arrays.asList(options));
+        arguments.addAll(Arrays.asList("-classpath", System.getProperty("java.class.path") + File.pathSeparator + outputDir.getPath(),
+                "-d", outputDir.getPath(), sourceFile.getPath()));
+        int result = compiler.run(null, null, null, arguments.toArray(new String[arguments.size()]));
+        assertEquals(0, result);
+    }
+
+    private List<StepIndexEntry> readIndex() throws IOException {
+        InputStream stream = new FileInputStream(new File(outputDir, StepIndex.RESOURCE));
+        try {
+            return StepIndex.read(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(workingDir);
+    }
+}